@@ -1,7 +1,6 @@
 package com.capacitor.pdfannotator;
 
 import android.content.Context;
-import android.graphics.PointF;
 import android.util.Log;
 
 import org.json.JSONArray;
@@ -169,17 +168,7 @@ public class AnnotationStorage {
                         JSONObject pointObj = pointsArray.getJSONObject(k);
                         float x = (float) pointObj.getDouble("x");
                         float y = (float) pointObj.getDouble("y");
-                        stroke.points.add(new PointF(x, y));
-                    }
-
-                    // Rebuild the path from points
-                    if (!stroke.points.isEmpty()) {
-                        PointF first = stroke.points.get(0);
-                        stroke.path.moveTo(first.x, first.y);
-                        for (int k = 1; k < stroke.points.size(); k++) {
-                            PointF point = stroke.points.get(k);
-                            stroke.path.lineTo(point.x, point.y);
-                        }
+                        stroke.addPoint(x, y);
                     }
 
                     strokes.add(stroke);
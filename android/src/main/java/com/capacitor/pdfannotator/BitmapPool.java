@@ -0,0 +1,104 @@
+package com.capacitor.pdfannotator;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of reusable bitmaps of a single config, bucketed by exact size.
+ *
+ * Most pages of a document share the same dimensions, so a bitmap released by
+ * one page can be erased and rendered into for the next one instead of
+ * allocating a new multi-megabyte bitmap. The pool is bounded by total bytes;
+ * bitmaps that don't fit are recycled.
+ *
+ * Thread-safe: bitmaps are acquired on render threads and released on the main thread.
+ */
+final class BitmapPool {
+
+    private final Bitmap.Config config;
+    private final long maxBytes;
+    private final Map<Long, ArrayDeque<Bitmap>> buckets = new HashMap<>();
+    private long currentBytes = 0;
+
+    BitmapPool(Bitmap.Config config, long maxBytes) {
+        this.config = config;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Take a pooled bitmap of exactly the given size, or null if there is none.
+     * The content of the returned bitmap is undefined.
+     */
+    synchronized Bitmap acquire(int width, int height) {
+        ArrayDeque<Bitmap> bucket = buckets.get(key(width, height));
+        if (bucket == null) {
+            return null;
+        }
+        Bitmap bitmap = bucket.poll();
+        if (bucket.isEmpty()) {
+            buckets.remove(key(width, height));
+        }
+        if (bitmap != null) {
+            currentBytes -= bitmap.getAllocationByteCount();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get a bitmap of the given size, reusing a pooled one when possible.
+     */
+    Bitmap acquireOrCreate(int width, int height) {
+        Bitmap bitmap = acquire(width, height);
+        return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Hand a bitmap that is no longer displayed back to the pool.
+     * Bitmaps that can't be reused or don't fit in the budget are recycled.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bitmap.getConfig() != config || currentBytes + bytes > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        long key = key(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(key, bucket);
+        }
+        bucket.push(bitmap);
+        currentBytes += bytes;
+    }
+
+    /**
+     * Bytes held by the pooled bitmaps.
+     */
+    synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * Recycle every pooled bitmap.
+     */
+    synchronized void clear() {
+        for (ArrayDeque<Bitmap> bucket : buckets.values()) {
+            for (Bitmap bitmap : bucket) {
+                bitmap.recycle();
+            }
+        }
+        buckets.clear();
+        currentBytes = 0;
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,107 @@
+package com.capacitor.pdfannotator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reusable character buffer that formats coordinates with two decimal places.
+ *
+ * Output is identical to {@code String.format(Locale.US, "%.2f", value)} but is
+ * produced with integer arithmetic straight into the buffer, without creating a
+ * Formatter, boxing the value or allocating a String per number.
+ */
+final class CoordinateEncoder {
+
+    // Values at or beyond this magnitude (and NaN/Infinity) go through String.format
+    private static final float FAST_PATH_LIMIT = 1e9f;
+
+    private char[] buffer;
+    private int length = 0;
+
+    CoordinateEncoder(int initialCapacity) {
+        buffer = new char[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * Discard the current content, keeping the allocated buffer.
+     */
+    void reset() {
+        length = 0;
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    CoordinateEncoder append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    CoordinateEncoder append(String s) {
+        int count = s.length();
+        ensureCapacity(count);
+        s.getChars(0, count, buffer, length);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Append a value formatted as "%.2f" (half-up rounding, "-" kept for negative values rounding to zero).
+     */
+    CoordinateEncoder appendFixed2(float value) {
+        if (!(Math.abs(value) < FAST_PATH_LIMIT)) {
+            return append(String.format(Locale.US, "%.2f", value));
+        }
+
+        // A float has at most 24 significant bits, so multiplying by 100 in double is exact
+        // and rounding the exact product half-up matches Formatter's HALF_UP behaviour.
+        boolean negative = Float.floatToRawIntBits(value) < 0;
+        long scaled = (long) (Math.abs((double) value) * 100.0 + 0.5);
+        long integerPart = scaled / 100;
+        int fraction = (int) (scaled % 100);
+
+        // Sign + up to 10 integer digits + '.' + 2 fraction digits
+        ensureCapacity(14);
+        if (negative) {
+            buffer[length++] = '-';
+        }
+
+        int digitsStart = length;
+        do {
+            buffer[length++] = (char) ('0' + (integerPart % 10));
+            integerPart /= 10;
+        } while (integerPart != 0);
+        reverse(digitsStart, length - 1);
+
+        buffer[length++] = '.';
+        buffer[length++] = (char) ('0' + fraction / 10);
+        buffer[length++] = (char) ('0' + fraction % 10);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            char tmp = buffer[from];
+            buffer[from++] = buffer[to];
+            buffer[to--] = tmp;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = length + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
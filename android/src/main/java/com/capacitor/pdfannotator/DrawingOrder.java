@@ -0,0 +1,84 @@
+package com.capacitor.pdfannotator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Positions of strokes in a page's drawing order, so that an edit removing some
+ * strokes and adding others can be undone and redone with every stroke back in its
+ * place.
+ *
+ * A position is the index a stroke has in the list right after the edit, counted
+ * from the bottom or from the top. Replaying an edit inserts the strokes in order of
+ * their positions, which restores the list exactly when the other strokes are as they
+ * were. Changes at the other end of the list in between, such as loaded strokes
+ * swapped out from the top or rebuilt strokes added at the bottom, don't move
+ * anything. Strokes are compared by identity.
+ */
+final class DrawingOrder {
+
+    private DrawingOrder() {
+    }
+
+    /**
+     * Positions of {@code items} in {@code list}, in the order of {@code items};
+     * -1 for items that aren't in the list.
+     */
+    static <T> int[] positionsOf(List<T> list, List<T> items, boolean fromTop) {
+        Map<T, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            indices.put(list.get(i), i);
+        }
+        int[] positions = new int[items.size()];
+        for (int i = 0; i < positions.length; i++) {
+            Integer index = indices.get(items.get(i));
+            if (index == null) {
+                positions[i] = -1;
+            } else {
+                positions[i] = fromTop ? list.size() - 1 - index : index;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Remove {@code removed} from {@code list} and insert {@code inserted} at
+     * {@code positions}, as returned by {@link #positionsOf}. Strokes without a
+     * position, or all of them if {@code positions} is null, go on top.
+     */
+    static <T> void replace(List<T> list, Collection<T> removed, List<T> inserted, int[] positions,
+                            boolean fromTop) {
+        if (!removed.isEmpty()) {
+            Set<T> removedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            removedSet.addAll(removed);
+            list.removeIf(removedSet::contains);
+        }
+        if (positions == null || positions.length != inserted.size()) {
+            list.addAll(inserted);
+            return;
+        }
+
+        // Lowest position first, so every stroke below (or above) one is in place before it
+        List<Integer> order = new ArrayList<>(inserted.size());
+        for (int i = 0; i < inserted.size(); i++) {
+            if (positions[i] >= 0) {
+                order.add(i);
+            }
+        }
+        order.sort((a, b) -> Integer.compare(positions[a], positions[b]));
+        for (int i : order) {
+            int index = fromTop ? list.size() - positions[i] : positions[i];
+            list.add(Math.max(0, Math.min(index, list.size())), inserted.get(i));
+        }
+        for (int i = 0; i < inserted.size(); i++) {
+            if (positions[i] < 0) {
+                list.add(inserted.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.capacitor.pdfannotator;
+
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for XFDF gesture strings ("x1,y1;x2,y2;...").
+ *
+ * Scans the character data in place and writes the coordinates into a reusable
+ * primitive array of interleaved x/y values, without splitting, trimming or
+ * creating intermediate Strings. Accepts exactly what the previous
+ * split(";") / split(",") / Float.parseFloat implementation accepted:
+ * surrounding whitespace is ignored, extra coordinates in a pair are ignored,
+ * pairs with fewer than two coordinates are skipped silently and pairs with an
+ * unparseable coordinate are logged and skipped.
+ */
+final class GestureParser {
+
+    private static final String TAG = "GestureParser";
+
+    // Powers of ten that are exactly representable as floats (5^10 < 2^24)
+    private static final float[] POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    // Mantissas below this are exactly representable as floats
+    private static final long MAX_EXACT_MANTISSA = 1L << 24;
+
+    // Text accumulated from the parser before scanning
+    private char[] text = new char[1024];
+    private int textLength = 0;
+
+    // Parsed coordinates, interleaved x/y
+    private float[] coords = new float[256];
+    private int pointCount = 0;
+
+    // Result of the last parseNumber call
+    private float parsedValue;
+
+    /**
+     * Clear accumulated text.
+     */
+    void resetText() {
+        textLength = 0;
+    }
+
+    /**
+     * Append a chunk of character data (e.g. from XmlPullParser.getTextCharacters).
+     */
+    void appendText(char[] chars, int start, int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+        }
+        System.arraycopy(chars, start, text, textLength, length);
+        textLength += length;
+    }
+
+    /**
+     * Parse the accumulated text.
+     *
+     * @return number of points parsed
+     */
+    int parseText() {
+        return parse(text, 0, textLength);
+    }
+
+    /**
+     * Parse a gesture string held in a character array.
+     *
+     * @return number of points parsed
+     */
+    int parse(char[] chars, int start, int length) {
+        pointCount = 0;
+        int end = start + length;
+
+        int pairStart = start;
+        while (pairStart <= end) {
+            int pairEnd = indexOf(chars, ';', pairStart, end);
+            parsePair(chars, pairStart, pairEnd);
+            pairStart = pairEnd + 1;
+        }
+
+        return pointCount;
+    }
+
+    /**
+     * Parsed coordinates as interleaved x/y values; valid up to {@code 2 * pointCount()}.
+     */
+    float[] coords() {
+        return coords;
+    }
+
+    int pointCount() {
+        return pointCount;
+    }
+
+    private void parsePair(char[] chars, int start, int end) {
+        int firstComma = indexOf(chars, ',', start, end);
+        if (firstComma == end) {
+            return; // Single coordinate
+        }
+
+        // Trailing empty coordinates don't count, so "5," and "5,," have fewer than two
+        boolean hasSecond = false;
+        for (int i = firstComma + 1; i < end; i++) {
+            if (chars[i] != ',') {
+                hasSecond = true;
+                break;
+            }
+        }
+        if (!hasSecond) {
+            return;
+        }
+
+        int secondEnd = indexOf(chars, ',', firstComma + 1, end);
+
+        if (!parseNumber(chars, start, firstComma)) {
+            logInvalidPair(chars, start, end);
+            return;
+        }
+        float x = parsedValue;
+
+        if (!parseNumber(chars, firstComma + 1, secondEnd)) {
+            logInvalidPair(chars, start, end);
+            return;
+        }
+        float y = parsedValue;
+
+        if (2 * pointCount + 2 > coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+        coords[2 * pointCount] = x;
+        coords[2 * pointCount + 1] = y;
+        pointCount++;
+    }
+
+    /**
+     * Parse a trimmed decimal number into {@link #parsedValue}, matching Float.parseFloat.
+     *
+     * Plain decimals with up to 7 significant digits and 10 fraction digits are converted
+     * with a single float division, which is correctly rounded because both operands are
+     * exact floats. Anything else (exponents, long mantissas, NaN, hex, ...) falls back
+     * to Float.parseFloat.
+     */
+    private boolean parseNumber(char[] chars, int start, int end) {
+        // Trim like String.trim()
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        boolean fastPath = true;
+
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+                    fastPath = false;
+                    break;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                fastPath = false;
+                break;
+            }
+        }
+
+        if (fastPath && digits > 0) {
+            float magnitude = fractionDigits == 0
+                    ? (float) mantissa
+                    : (float) mantissa / POWERS_OF_TEN[fractionDigits];
+            parsedValue = negative ? -magnitude : magnitude;
+            return true;
+        }
+
+        try {
+            parsedValue = Float.parseFloat(new String(chars, start, end - start));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void logInvalidPair(char[] chars, int start, int end) {
+        Log.w(TAG, "Invalid point in gesture: " + new String(chars, start, end - start));
+    }
+
+    private static int indexOf(char[] chars, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+}
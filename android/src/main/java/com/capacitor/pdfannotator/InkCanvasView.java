@@ -6,6 +6,7 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
@@ -13,7 +14,9 @@ import android.view.View;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -30,6 +33,8 @@ public class InkCanvasView extends View {
     private InkStroke currentStroke = null;
     private Path currentPath = new Path();
     private Paint currentPaint;
+    // Reused for every finished stroke so drawing a frame allocates nothing
+    private final Paint strokePaint = createPaint(0, 0);
 
     // Settings
     private int inkColor = Color.BLACK;
@@ -46,20 +51,51 @@ public class InkCanvasView extends View {
         void onInkChanged();
     }
 
+    /**
+     * A single ink stroke.
+     *
+     * Geometry is stored packed as interleaved x/y floats, with an optional parallel
+     * pressure/time channel that is only allocated once a point carrying that data is
+     * added. {@link #getPoints()} and {@link #getPath()} are views created on first
+     * use, so strokes that are only loaded and saved never allocate PointF or Path objects.
+     */
     public static class InkStroke {
+        public static final float NO_PRESSURE = -1f;
+
+        private static final float[] EMPTY_COORDS = new float[0];
+        private static final int MIN_CAPACITY = 16; // points
+        // Segments per chunk of the bounds used to skip distant parts of a stroke in hit tests
+        private static final int HIT_TEST_CHUNK = 32;
+
         public int pageIndex;
         public int color;
         public float strokeWidth;
         public int brushType = 0; // Default to pressure pen (0)
-        public List<PointF> points;
-        public Path path;
+
+        // Interleaved x/y coordinates, valid up to 2 * pointCount
+        private float[] coords = EMPTY_COORDS;
+        private int pointCount = 0;
+
+        // Optional per-point pressure and elapsed time, null until first used
+        private float[] pressures;
+        private long[] timesMillis;
+
+        // Bounds of the points, maintained as points are added
+        private float minX = Float.POSITIVE_INFINITY;
+        private float minY = Float.POSITIVE_INFINITY;
+        private float maxX = Float.NEGATIVE_INFINITY;
+        private float maxY = Float.NEGATIVE_INFINITY;
+
+        // Lazily created views
+        private List<PointF> pointsView;
+        private Path path;
+        // Bounds of each chunk of segments as left, top, right, bottom; built on the first hit test
+        private float[] chunkBounds;
 
         public InkStroke(int pageIndex, int color, float strokeWidth) {
             this.pageIndex = pageIndex;
             this.color = color;
             this.strokeWidth = strokeWidth;
-            this.points = new ArrayList<>();
-            this.path = new Path();
         }
 
         public InkStroke(int pageIndex, int color, float strokeWidth, int brushType) {
@@ -67,8 +103,328 @@ public class InkCanvasView extends View {
             this.color = color;
             this.strokeWidth = strokeWidth;
             this.brushType = brushType;
-            this.points = new ArrayList<>();
-            this.path = new Path();
+        }
+
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        public boolean isEmpty() {
+            return pointCount == 0;
+        }
+
+        public float getX(int index) {
+            return coords[2 * index];
+        }
+
+        public float getY(int index) {
+            return coords[2 * index + 1];
+        }
+
+        /**
+         * Backing array of interleaved x/y values, valid up to {@code 2 * getPointCount()}.
+         * Callers must not modify it.
+         */
+        public float[] getCoords() {
+            return coords;
+        }
+
+        public boolean hasPressureAndTime() {
+            return pressures != null;
+        }
+
+        /**
+         * Pressure of a point, or {@link #NO_PRESSURE} if it was not recorded.
+         */
+        public float getPressure(int index) {
+            return pressures != null ? pressures[index] : NO_PRESSURE;
+        }
+
+        /**
+         * Elapsed time of a point since the start of the stroke, or 0 if it was not recorded.
+         */
+        public long getTimeMillis(int index) {
+            return timesMillis != null ? timesMillis[index] : 0L;
+        }
+
+        public void addPoint(float x, float y) {
+            ensureCapacity(pointCount + 1);
+            if (pressures != null) {
+                pressures[pointCount] = NO_PRESSURE;
+                timesMillis[pointCount] = 0L;
+            }
+            appendCoords(x, y);
+        }
+
+        public void addPoint(float x, float y, float pressure, long timeMillis) {
+            ensureCapacity(pointCount + 1);
+            if (pressures == null) {
+                pressures = new float[coords.length / 2];
+                timesMillis = new long[coords.length / 2];
+                Arrays.fill(pressures, 0, pointCount, NO_PRESSURE);
+            }
+            pressures[pointCount] = pressure;
+            timesMillis[pointCount] = timeMillis;
+            appendCoords(x, y);
+        }
+
+        /**
+         * Append {@code count} points from an array of interleaved x/y values.
+         */
+        public void addPoints(float[] xy, int offset, int count) {
+            if (count <= 0) {
+                return;
+            }
+            ensureCapacity(pointCount + count);
+            if (pressures != null) {
+                Arrays.fill(pressures, pointCount, pointCount + count, NO_PRESSURE);
+                Arrays.fill(timesMillis, pointCount, pointCount + count, 0L);
+            }
+            System.arraycopy(xy, offset, coords, 2 * pointCount, 2 * count);
+            chunkBounds = null;
+            for (int i = 0; i < count; i++) {
+                float x = xy[offset + 2 * i];
+                float y = xy[offset + 2 * i + 1];
+                includeInBounds(x, y);
+                if (path != null) {
+                    extendPath(x, y, pointCount + i);
+                }
+            }
+            pointCount += count;
+        }
+
+        /**
+         * Points as a list view over the packed coordinates. Each get() creates a new PointF;
+         * add() appends to the stroke.
+         */
+        public List<PointF> getPoints() {
+            if (pointsView == null) {
+                pointsView = new AbstractList<PointF>() {
+                    @Override
+                    public PointF get(int index) {
+                        if (index < 0 || index >= pointCount) {
+                            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+                        }
+                        return new PointF(coords[2 * index], coords[2 * index + 1]);
+                    }
+
+                    @Override
+                    public int size() {
+                        return pointCount;
+                    }
+
+                    @Override
+                    public boolean add(PointF point) {
+                        addPoint(point.x, point.y);
+                        modCount++;
+                        return true;
+                    }
+                };
+            }
+            return pointsView;
+        }
+
+        /**
+         * Bounds of the points, computed without building the Path. Empty strokes have empty bounds.
+         */
+        public void computeBounds(RectF out) {
+            if (pointCount == 0) {
+                out.setEmpty();
+            } else {
+                out.set(minX, minY, maxX, maxY);
+            }
+        }
+
+        /**
+         * Polyline through the points, built on first use (normally the first draw) and cached.
+         * Loading and saving only touch the packed points, so strokes on pages that are never
+         * shown never get a Path.
+         */
+        public Path getPath() {
+            if (path == null) {
+                path = new Path();
+                for (int i = 0; i < pointCount; i++) {
+                    extendPath(coords[2 * i], coords[2 * i + 1], i);
+                }
+            }
+            return path;
+        }
+
+        /**
+         * Drop the cached Path, e.g. when the stroke is no longer on screen.
+         * It is rebuilt from the points on the next {@link #getPath()}.
+         */
+        public void releasePath() {
+            path = null;
+        }
+
+        /**
+         * Whether a Path is currently built for the stroke.
+         */
+        public boolean hasPath() {
+            return path != null;
+        }
+
+        /**
+         * Whether the polyline through the points passes within {@code radius} of (x, y).
+         * Uses exact point-to-segment distances over the packed coordinates, so thin
+         * strokes can't slip between samples; the stroke bounds and the bounds of each
+         * chunk of segments rule out distant parts without testing their segments.
+         */
+        public boolean isWithinDistance(float x, float y, float radius) {
+            if (pointCount == 0
+                    || x + radius < minX || x - radius > maxX
+                    || y + radius < minY || y - radius > maxY) {
+                return false;
+            }
+            float radiusSq = radius * radius;
+            if (pointCount == 1) {
+                float dx = coords[0] - x;
+                float dy = coords[1] - y;
+                return dx * dx + dy * dy <= radiusSq;
+            }
+
+            float[] bounds = getChunkBounds();
+            int segments = pointCount - 1;
+            for (int chunk = 0; 4 * chunk < bounds.length; chunk++) {
+                int b = 4 * chunk;
+                if (x + radius < bounds[b] || x - radius > bounds[b + 2]
+                        || y + radius < bounds[b + 1] || y - radius > bounds[b + 3]) {
+                    continue;
+                }
+                int end = Math.min(segments, (chunk + 1) * HIT_TEST_CHUNK);
+                for (int i = chunk * HIT_TEST_CHUNK; i < end; i++) {
+                    if (segmentDistanceSq(x, y, coords[2 * i], coords[2 * i + 1],
+                            coords[2 * i + 2], coords[2 * i + 3]) <= radiusSq) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy of the part of the stroke between two fractional point indices, e.g. a piece
+         * left by the precision eraser. Fractional ends are interpolated, including pressure
+         * and time when they were recorded.
+         */
+        public InkStroke slice(float from, float to) {
+            InkStroke piece = new InkStroke(pageIndex, color, strokeWidth, brushType);
+            int first = (int) Math.ceil(from);
+            int last = (int) Math.floor(to);
+            if (from < first) {
+                piece.addInterpolatedPoint(this, from);
+            }
+            for (int i = first; i <= last; i++) {
+                if (pressures != null) {
+                    piece.addPoint(coords[2 * i], coords[2 * i + 1], pressures[i], timesMillis[i]);
+                } else {
+                    piece.addPoint(coords[2 * i], coords[2 * i + 1]);
+                }
+            }
+            if (to > last) {
+                piece.addInterpolatedPoint(this, to);
+            }
+            return piece;
+        }
+
+        private void addInterpolatedPoint(InkStroke source, float position) {
+            int i = Math.min((int) position, source.pointCount - 2);
+            float t = position - i;
+            float[] c = source.coords;
+            float x = c[2 * i] + (c[2 * i + 2] - c[2 * i]) * t;
+            float y = c[2 * i + 1] + (c[2 * i + 3] - c[2 * i + 1]) * t;
+            if (source.pressures != null) {
+                float pressure = source.pressures[i] == NO_PRESSURE || source.pressures[i + 1] == NO_PRESSURE
+                        ? NO_PRESSURE
+                        : source.pressures[i] + (source.pressures[i + 1] - source.pressures[i]) * t;
+                long time = source.timesMillis[i] + Math.round((source.timesMillis[i + 1] - source.timesMillis[i]) * (double) t);
+                addPoint(x, y, pressure, time);
+            } else {
+                addPoint(x, y);
+            }
+        }
+
+        private float[] getChunkBounds() {
+            if (chunkBounds == null) {
+                int segments = pointCount - 1;
+                int chunks = (segments + HIT_TEST_CHUNK - 1) / HIT_TEST_CHUNK;
+                float[] bounds = new float[4 * chunks];
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    // Segments of the chunk run from its first point up to the first point of the next
+                    int start = chunk * HIT_TEST_CHUNK;
+                    int end = Math.min(segments, start + HIT_TEST_CHUNK);
+                    float left = Float.POSITIVE_INFINITY;
+                    float top = Float.POSITIVE_INFINITY;
+                    float right = Float.NEGATIVE_INFINITY;
+                    float bottom = Float.NEGATIVE_INFINITY;
+                    for (int i = start; i <= end; i++) {
+                        left = Math.min(left, coords[2 * i]);
+                        top = Math.min(top, coords[2 * i + 1]);
+                        right = Math.max(right, coords[2 * i]);
+                        bottom = Math.max(bottom, coords[2 * i + 1]);
+                    }
+                    bounds[4 * chunk] = left;
+                    bounds[4 * chunk + 1] = top;
+                    bounds[4 * chunk + 2] = right;
+                    bounds[4 * chunk + 3] = bottom;
+                }
+                chunkBounds = bounds;
+            }
+            return chunkBounds;
+        }
+
+        /**
+         * Squared distance from (px, py) to the segment from (ax, ay) to (bx, by).
+         */
+        static float segmentDistanceSq(float px, float py, float ax, float ay, float bx, float by) {
+            float dx = bx - ax;
+            float dy = by - ay;
+            float lengthSq = dx * dx + dy * dy;
+            float t = lengthSq > 0f ? ((px - ax) * dx + (py - ay) * dy) / lengthSq : 0f;
+            t = Math.max(0f, Math.min(1f, t));
+            float cx = ax + t * dx - px;
+            float cy = ay + t * dy - py;
+            return cx * cx + cy * cy;
+        }
+
+        private void appendCoords(float x, float y) {
+            coords[2 * pointCount] = x;
+            coords[2 * pointCount + 1] = y;
+            chunkBounds = null;
+            includeInBounds(x, y);
+            if (path != null) {
+                extendPath(x, y, pointCount);
+            }
+            pointCount++;
+        }
+
+        private void includeInBounds(float x, float y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        private void extendPath(float x, float y, int index) {
+            if (index == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+
+        private void ensureCapacity(int points) {
+            int capacity = coords.length / 2;
+            if (points <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(points, Math.max(MIN_CAPACITY, capacity + (capacity >> 1)));
+            coords = Arrays.copyOf(coords, 2 * newCapacity);
+            if (pressures != null) {
+                pressures = Arrays.copyOf(pressures, newCapacity);
+                timesMillis = Arrays.copyOf(timesMillis, newCapacity);
+            }
         }
     }
 
@@ -107,12 +463,12 @@ public class InkCanvasView extends View {
 
     public void setInkColor(int color) {
         this.inkColor = color;
-        currentPaint = createPaint(color, strokeWidth);
+        currentPaint.setColor(color);
     }
 
     public void setStrokeWidth(float width) {
         this.strokeWidth = width;
-        currentPaint = createPaint(inkColor, width);
+        currentPaint.setStrokeWidth(width);
     }
 
     public void setDrawingEnabled(boolean enabled) {
@@ -148,9 +504,11 @@ public class InkCanvasView extends View {
         super.onDraw(canvas);
 
         // Draw completed strokes
-        for (InkStroke stroke : strokes) {
-            Paint paint = createPaint(stroke.color, stroke.strokeWidth);
-            canvas.drawPath(stroke.path, paint);
+        for (int i = 0; i < strokes.size(); i++) {
+            InkStroke stroke = strokes.get(i);
+            strokePaint.setColor(stroke.color);
+            strokePaint.setStrokeWidth(stroke.strokeWidth);
+            canvas.drawPath(stroke.getPath(), strokePaint);
         }
 
         // Draw current stroke
@@ -174,7 +532,7 @@ public class InkCanvasView extends View {
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                startStroke(x, y, adjustedWidth);
+                startStroke(x, y, adjustedWidth, event);
                 return true;
 
             case MotionEvent.ACTION_MOVE:
@@ -190,9 +548,9 @@ public class InkCanvasView extends View {
         return super.onTouchEvent(event);
     }
 
-    private void startStroke(float x, float y, float width) {
+    private void startStroke(float x, float y, float width, MotionEvent event) {
         currentStroke = new InkStroke(pageIndex, inkColor, width);
-        currentStroke.points.add(new PointF(x, y));
+        currentStroke.addPoint(x, y, event.getPressure(), 0L);
 
         currentPath.reset();
         currentPath.moveTo(x, y);
@@ -208,20 +566,19 @@ public class InkCanvasView extends View {
         for (int i = 0; i < historySize; i++) {
             float hx = event.getHistoricalX(i);
             float hy = event.getHistoricalY(i);
-            currentStroke.points.add(new PointF(hx, hy));
+            currentStroke.addPoint(hx, hy, event.getHistoricalPressure(i),
+                    event.getHistoricalEventTime(i) - event.getDownTime());
             currentPath.lineTo(hx, hy);
         }
 
-        currentStroke.points.add(new PointF(x, y));
+        currentStroke.addPoint(x, y, event.getPressure(), event.getEventTime() - event.getDownTime());
         currentPath.lineTo(x, y);
 
         invalidate();
     }
 
     private void endStroke() {
-        if (currentStroke != null && currentStroke.points.size() > 1) {
-            // Copy path to stroke
-            currentStroke.path = new Path(currentPath);
+        if (currentStroke != null && currentStroke.getPointCount() > 1) {
             strokes.add(currentStroke);
             undoStack.clear(); // Clear redo stack when new stroke is added
             notifyInkChanged();
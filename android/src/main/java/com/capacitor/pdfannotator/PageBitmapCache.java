@@ -0,0 +1,206 @@
+package com.capacitor.pdfannotator;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * LRU cache of rendered page bitmaps, bounded by total bitmap bytes.
+ *
+ * Entries are keyed by page index and render scale. Bitmaps that drop out of the
+ * cache are only handed to the {@link BitmapPool} for reuse once no view displays
+ * them any more: callers report which bitmaps are on screen with
+ * {@link #markDisplayed(Bitmap)} and {@link #markHidden(Bitmap)}, and evicted
+ * bitmaps that are still shown are released when they are hidden. Background work
+ * that reads a bitmap, such as a disk write, holds it with {@link #pin(Bitmap)}.
+ *
+ * All methods must be called on the main thread.
+ */
+final class PageBitmapCache {
+
+    private static final String TAG = "PageBitmapCache";
+
+    // Share of the app's memory class used when no explicit budget is given
+    private static final int DEFAULT_MEMORY_CLASS_DIVISOR = 4;
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private final LruCache<Long, Bitmap> cache;
+    private final BitmapPool bitmapPool;
+
+    // Number of views currently showing each bitmap
+    private final Map<Bitmap, Integer> displayCounts = new IdentityHashMap<>();
+    // Number of background readers holding each bitmap
+    private final Map<Bitmap, Integer> pinCounts = new IdentityHashMap<>();
+    // Bitmaps removed from the cache while still displayed or pinned
+    private final Map<Bitmap, Boolean> pendingRelease = new IdentityHashMap<>();
+
+    PageBitmapCache(int maxBytes, BitmapPool bitmapPool) {
+        this.bitmapPool = bitmapPool;
+        cache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    release(oldValue);
+                }
+            }
+        };
+        Log.d(TAG, "Page cache budget: " + (maxBytes / BYTES_PER_MB) + " MB");
+    }
+
+    /**
+     * Cache budget in bytes: the configured size in MB, or a share of the
+     * app's memory class when {@code configuredMb} is not positive.
+     */
+    static int resolveMaxBytes(Context context, int configuredMb) {
+        if (configuredMb > 0) {
+            return (int) Math.min((long) configuredMb * BYTES_PER_MB, Integer.MAX_VALUE);
+        }
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = activityManager != null ? activityManager.getMemoryClass() : 64;
+        return memoryClassMb / DEFAULT_MEMORY_CLASS_DIVISOR * BYTES_PER_MB;
+    }
+
+    Bitmap get(int pageIndex, float scale) {
+        Bitmap bitmap = cache.get(key(pageIndex, scale));
+        return bitmap != null && !bitmap.isRecycled() ? bitmap : null;
+    }
+
+    /**
+     * Cache a bitmap. Callers mark it displayed or pin it first if they keep using it:
+     * a bitmap larger than the whole budget is not cached, since the cache would evict
+     * it at once, and is released to the pool like an evicted bitmap instead.
+     */
+    void put(int pageIndex, float scale, Bitmap bitmap) {
+        if (bitmap.getAllocationByteCount() > cache.maxSize()) {
+            Log.w(TAG, "Page " + pageIndex + " bitmap (" + (bitmap.getAllocationByteCount() / 1024)
+                    + " KB) exceeds the page cache budget; not caching it");
+            release(bitmap);
+            return;
+        }
+        cache.put(key(pageIndex, scale), bitmap);
+    }
+
+    /**
+     * Record that a view started showing the bitmap.
+     */
+    void markDisplayed(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        Integer count = displayCounts.get(bitmap);
+        displayCounts.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Record that a view stopped showing the bitmap, releasing it to the pool if it has already left the cache.
+     */
+    void markHidden(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        if (decrement(displayCounts, bitmap)) {
+            releaseIfUnused(bitmap);
+        }
+    }
+
+    /**
+     * Keep the bitmap from being released for reuse until {@link #unpin(Bitmap)}.
+     */
+    void pin(Bitmap bitmap) {
+        Integer count = pinCounts.get(bitmap);
+        pinCounts.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    void unpin(Bitmap bitmap) {
+        if (decrement(pinCounts, bitmap)) {
+            releaseIfUnused(bitmap);
+        }
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    int entryCount() {
+        return cache.snapshot().size();
+    }
+
+    /**
+     * Evict every bitmap that no view is showing, e.g. prefetched pages under memory pressure.
+     */
+    void trimToDisplayed() {
+        for (Map.Entry<Long, Bitmap> entry : cache.snapshot().entrySet()) {
+            if (!displayCounts.containsKey(entry.getValue())) {
+                cache.remove(entry.getKey());
+            }
+        }
+    }
+
+    int maxSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Drop every entry and release all bitmaps to the pool, including ones still displayed.
+     * Pinned bitmaps are left alone, since background work is still reading them.
+     * Only for use when the views are going away.
+     */
+    void clear() {
+        displayCounts.clear();
+        cache.evictAll();
+        Iterator<Bitmap> iterator = pendingRelease.keySet().iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (!pinCounts.containsKey(bitmap)) {
+                iterator.remove();
+                bitmapPool.release(bitmap);
+            }
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        if (displayCounts.containsKey(bitmap) || pinCounts.containsKey(bitmap)) {
+            pendingRelease.put(bitmap, Boolean.TRUE);
+        } else {
+            bitmapPool.release(bitmap);
+        }
+    }
+
+    private void releaseIfUnused(Bitmap bitmap) {
+        if (!displayCounts.containsKey(bitmap) && !pinCounts.containsKey(bitmap)
+                && pendingRelease.remove(bitmap) != null) {
+            bitmapPool.release(bitmap);
+        }
+    }
+
+    /**
+     * Decrement a count, returning true if it dropped to zero.
+     */
+    private static boolean decrement(Map<Bitmap, Integer> counts, Bitmap bitmap) {
+        Integer count = counts.get(bitmap);
+        if (count == null) {
+            return false;
+        }
+        if (count > 1) {
+            counts.put(bitmap, count - 1);
+            return false;
+        }
+        counts.remove(bitmap);
+        return true;
+    }
+
+    private static Long key(int pageIndex, float scale) {
+        return ((long) pageIndex << 32) | (Float.floatToIntBits(scale) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,312 @@
+package com.capacitor.pdfannotator;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compressed page rasters on disk, so reopening a document doesn't re-render every page.
+ *
+ * Files live under {@code <cacheDir>/pdf_pages/<fingerprint>/}, one per page and
+ * render scale. The fingerprint is a hash of the whole file, so any edit, including
+ * one that keeps the file size, gives the document a new directory and it never hits
+ * the rasters of its old version. The whole directory is bounded by {@code maxBytes}
+ * and trimmed least recently used first, across documents.
+ *
+ * Hashing starts on the writer thread as soon as the cache is created, so it overlaps
+ * with opening the document; a read that arrives first waits for it on its render
+ * thread. Reads happen on render threads. Writes are queued on the single background
+ * thread and dropped when too many are waiting, since the page can be written on a later render.
+ */
+final class PageDiskCache {
+
+    private static final String TAG = "PageDiskCache";
+
+    private static final String DIRECTORY_NAME = "pdf_pages";
+    private static final String FILE_EXTENSION = ".webp";
+    private static final String TEMP_EXTENSION = ".tmp";
+    // Read size while hashing the PDF
+    private static final int FINGERPRINT_BUFFER_SIZE = 64 * 1024;
+    // Lossy WebP keeps text sharp at this quality and is several times smaller than PNG
+    private static final int COMPRESS_QUALITY = 90;
+    // Writes waiting at once; each holds a page bitmap in memory
+    private static final int MAX_PENDING_WRITES = 2;
+
+    /**
+     * Called on the writer thread once a bitmap handed to {@link #put} is no longer needed.
+     */
+    interface WriteCallback {
+        void onWriteDone(Bitmap bitmap);
+    }
+
+    private final File rootDir;
+    private final File pdfFile;
+    private final long maxBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    // All cached files, least recently used first; guarded by this
+    private final LinkedHashMap<File, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private File documentDir;
+    private boolean opened = false;
+    private volatile boolean closed = false;
+
+    PageDiskCache(File cacheDir, File pdfFile, long maxBytes) {
+        this.rootDir = new File(cacheDir, DIRECTORY_NAME);
+        this.pdfFile = pdfFile;
+        this.maxBytes = maxBytes;
+        // Fingerprint off the main thread before the first read needs it
+        writer.execute(() -> {
+            synchronized (this) {
+                if (!closed) {
+                    ensureOpen();
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode the cached raster of a page, reusing a pooled bitmap of the expected size when possible.
+     * Returns null on a miss or if the file can't be decoded. Call off the main thread.
+     */
+    Bitmap get(int pageIndex, float scale, int width, int height, BitmapPool bitmapPool) {
+        File file;
+        synchronized (this) {
+            if (!ensureOpen()) {
+                return null;
+            }
+            file = pageFile(pageIndex, scale);
+            if (entries.get(file) == null) {
+                return null;
+            }
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        options.inBitmap = bitmapPool.acquire(width, height);
+        Bitmap bitmap;
+        try {
+            bitmap = decode(file, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap couldn't be reused for this file
+            bitmapPool.release(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = decode(file, options);
+        }
+
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            Log.w(TAG, "Discarding unreadable page cache file " + file.getName());
+            if (bitmap != null) {
+                bitmapPool.release(bitmap);
+            } else if (options.inBitmap != null) {
+                bitmapPool.release(options.inBitmap);
+            }
+            remove(file);
+            return null;
+        }
+
+        // Mark as recently used, also for the next time the cache is opened
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    /**
+     * Queue a page raster to be written. The bitmap must not be modified until
+     * {@code callback} runs; it runs right away if the write is dropped.
+     */
+    void put(int pageIndex, float scale, Bitmap bitmap, WriteCallback callback) {
+        if (closed || pendingWrites.incrementAndGet() > MAX_PENDING_WRITES) {
+            pendingWrites.decrementAndGet();
+            callback.onWriteDone(bitmap);
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                if (!closed) {
+                    write(pageIndex, scale, bitmap);
+                }
+            } finally {
+                pendingWrites.decrementAndGet();
+                callback.onWriteDone(bitmap);
+            }
+        });
+    }
+
+    /**
+     * Stop writing. Writes already queued are skipped; one in progress finishes in the background.
+     */
+    void close() {
+        closed = true;
+        writer.shutdown();
+    }
+
+    private void write(int pageIndex, float scale, Bitmap bitmap) {
+        File file;
+        synchronized (this) {
+            if (!ensureOpen()) {
+                return;
+            }
+            file = pageFile(pageIndex, scale);
+            if (entries.containsKey(file)) {
+                return;
+            }
+        }
+
+        // Write to a temporary file first so a crash never leaves a truncated raster behind
+        File temp = new File(file.getPath() + TEMP_EXTENSION);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, COMPRESS_QUALITY, out)) {
+                throw new IOException("Compression failed");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Error writing page " + pageIndex + " to disk cache", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            entries.put(file, file.length());
+            totalBytes += file.length();
+            trimToSize();
+        }
+    }
+
+    private synchronized void remove(File file) {
+        Long size = entries.remove(file);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        file.delete();
+    }
+
+    /**
+     * Fingerprint the document and index the files already on disk, once. Caller holds the lock.
+     */
+    private boolean ensureOpen() {
+        if (opened) {
+            return documentDir != null;
+        }
+        opened = true;
+        try {
+            documentDir = new File(rootDir, fingerprint(pdfFile));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            Log.w(TAG, "Page disk cache disabled, could not fingerprint " + pdfFile.getName(), e);
+            return false;
+        }
+        if (!documentDir.isDirectory() && !documentDir.mkdirs()) {
+            Log.w(TAG, "Page disk cache disabled, could not create " + documentDir);
+            documentDir = null;
+            return false;
+        }
+
+        // Index every document's files, oldest access first
+        List<File> files = new ArrayList<>();
+        File[] documents = rootDir.listFiles();
+        if (documents != null) {
+            for (File dir : documents) {
+                File[] pages = dir.listFiles();
+                if (pages == null) {
+                    continue;
+                }
+                for (File page : pages) {
+                    if (page.getName().endsWith(TEMP_EXTENSION)) {
+                        page.delete();
+                    } else {
+                        files.add(page);
+                    }
+                }
+            }
+        }
+        files.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            long size = file.length();
+            entries.put(file, size);
+            totalBytes += size;
+        }
+        trimToSize();
+        Log.d(TAG, "Page disk cache: " + entries.size() + " files, " + (totalBytes / 1024) + " KB");
+        return true;
+    }
+
+    /**
+     * Delete least recently used files until the cache fits its budget. Caller holds the lock.
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<File, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<File, Long> entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.getValue();
+            File file = entry.getKey();
+            file.delete();
+
+            // Drop directories of documents with nothing cached any more
+            File dir = file.getParentFile();
+            if (dir != null && !dir.equals(documentDir)) {
+                String[] remaining = dir.list();
+                if (remaining != null && remaining.length == 0) {
+                    dir.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Like {@link BitmapFactory#decodeFile}, but throws IllegalArgumentException when the
+     * file can't be decoded into {@code options.inBitmap}, so the caller can retry without it.
+     */
+    private static Bitmap decode(File file, BitmapFactory.Options options) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private File pageFile(int pageIndex, float scale) {
+        return new File(documentDir, pageIndex + "_" + Integer.toHexString(Float.floatToIntBits(scale)) + FILE_EXTENSION);
+    }
+
+    /**
+     * SHA-256 of the whole file, as hex. Reads the entire document, so call off the main thread.
+     */
+    static String fingerprint(File file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[FINGERPRINT_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        byte[] hash = digest.digest();
+        // Half the hash is plenty to tell documents apart
+        for (int i = 0; i < hash.length / 2; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.capacitor.pdfannotator;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Adapter for the page overview strip. Thumbnails come from the
+ * {@link PdfPagerAdapter}'s thumbnail pipeline and are filled in as they are rendered.
+ */
+public class PageThumbnailAdapter extends RecyclerView.Adapter<PageThumbnailAdapter.ThumbnailViewHolder> {
+
+    // Payload for rebinding only the image when a thumbnail arrives
+    private static final Object PAYLOAD_THUMBNAIL = new Object();
+
+    public interface OnPageClickListener {
+        void onPageClick(int pageIndex);
+    }
+
+    private final Context context;
+    private final PdfPagerAdapter pagerAdapter;
+    private final OnPageClickListener onPageClickListener;
+    private int currentPage = 0;
+
+    /**
+     * @param thumbnailWidth width of a thumbnail in pixels
+     */
+    public PageThumbnailAdapter(Context context, PdfPagerAdapter pagerAdapter, int thumbnailWidth,
+                                OnPageClickListener listener) {
+        this.context = context;
+        this.pagerAdapter = pagerAdapter;
+        this.onPageClickListener = listener;
+        pagerAdapter.enableThumbnails(thumbnailWidth,
+                (pageIndex, thumbnail) -> notifyItemChanged(pageIndex, PAYLOAD_THUMBNAIL));
+    }
+
+    /**
+     * Highlight the page shown in the pager.
+     */
+    public void setCurrentPage(int page) {
+        if (page == currentPage) {
+            return;
+        }
+        int previous = currentPage;
+        currentPage = page;
+        notifyItemChanged(previous);
+        notifyItemChanged(page);
+    }
+
+    @NonNull
+    @Override
+    public ThumbnailViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_page_thumbnail, parent, false);
+        return new ThumbnailViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ThumbnailViewHolder holder, int position) {
+        holder.pageNumber.setText(String.valueOf(position + 1));
+        holder.itemView.setSelected(position == currentPage);
+        holder.itemView.setContentDescription(context.getString(R.string.page_thumbnail_description, position + 1));
+        holder.itemView.setOnClickListener(v -> {
+            int page = holder.getBindingAdapterPosition();
+            if (page != RecyclerView.NO_POSITION && onPageClickListener != null) {
+                onPageClickListener.onPageClick(page);
+            }
+        });
+        bindThumbnail(holder, position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ThumbnailViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_THUMBNAIL) {
+            bindThumbnail(holder, position);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private void bindThumbnail(ThumbnailViewHolder holder, int position) {
+        // Requests the thumbnail if it isn't ready yet
+        Bitmap thumbnail = pagerAdapter.getThumbnail(position);
+        holder.thumbnail.setImageBitmap(thumbnail);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pagerAdapter.getPageCount();
+    }
+
+    static class ThumbnailViewHolder extends RecyclerView.ViewHolder {
+        final ImageView thumbnail;
+        final TextView pageNumber;
+
+        ThumbnailViewHolder(@NonNull View itemView) {
+            super(itemView);
+            thumbnail = itemView.findViewById(R.id.thumbnailImage);
+            pageNumber = itemView.findViewById(R.id.thumbnailPageNumber);
+        }
+    }
+}
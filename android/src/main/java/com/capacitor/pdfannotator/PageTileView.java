@@ -0,0 +1,328 @@
+package com.capacitor.pdfannotator;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * High-resolution detail layer drawn over the page bitmap while zoomed in.
+ *
+ * The page bitmap is rendered once for 1x, so it gets blurry when the content is
+ * scaled up. When the zoom settles, this view works out which part of the page is
+ * visible and has just that region rendered at the on-screen resolution, split into
+ * fixed-size tiles. Tiles live in a small LRU and are all dropped again when the
+ * zoom no longer needs more detail than the page bitmap has.
+ *
+ * The view sits inside the zoomed content container, so tiles are drawn in
+ * unzoomed content coordinates and the container's scale maps them 1:1 to screen pixels.
+ */
+public class PageTileView extends View {
+
+    static final int TILE_SIZE = 512;
+
+    /**
+     * Renders tiles in the background.
+     */
+    interface TileRenderer {
+        /**
+         * Render a tile and pass it to {@link PageTileView#onTileRendered(Tile, Bitmap)} on the main thread.
+         * The render should be skipped once {@link Tile#isCancelled()} returns true.
+         */
+        void renderTile(PageTileView view, Tile tile);
+
+        /**
+         * Give back a tile bitmap that is no longer drawn.
+         */
+        void releaseTile(Bitmap bitmap);
+    }
+
+    /**
+     * A region of a page rendered at a given scale.
+     */
+    static final class Tile {
+        final int pageIndex;
+        final int column;
+        final int row;
+        // Pixels per PDF point
+        final float scale;
+        // Region in page pixels at that scale
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+        // Where the tile is drawn, in content coordinates
+        final RectF bounds = new RectF();
+
+        private volatile boolean cancelled = false;
+        private Bitmap bitmap;
+
+        Tile(int pageIndex, int column, int row, float scale, int left, int top, int width, int height) {
+            this.pageIndex = pageIndex;
+            this.column = column;
+            this.row = row;
+            this.scale = scale;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // Tiles for the current scale, least recently visible first
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long tileBytes = 0;
+    private long maxTileBytes = 32L * 1024 * 1024;
+    // Tiles covering the visible region at the last settle; never trimmed
+    private Set<Long> visibleKeys = new HashSet<>();
+
+    private TileRenderer renderer;
+    private int pageIndex = -1;
+    // Page size in PDF points, 0 until known
+    private float pageWidth = 0;
+    private float pageHeight = 0;
+    // Pixels per PDF point of the page bitmap underneath
+    private float baseScale = 0;
+    // Pixels per PDF point of the current tiles
+    private float tileScale = 0;
+
+    // Last settled zoom state, so tiles can be requested once the page size is known
+    private float zoom = 1f;
+    private float translateX = 0f;
+    private float translateY = 0f;
+
+    public PageTileView(Context context) {
+        super(context);
+    }
+
+    public PageTileView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    void setTileRenderer(TileRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    void setMaxTileBytes(long maxTileBytes) {
+        this.maxTileBytes = maxTileBytes;
+    }
+
+    /**
+     * Show detail for a page. Tiles of a previous page are dropped.
+     *
+     * @param pageWidth  page width in PDF points, or 0 if not known yet
+     * @param pageHeight page height in PDF points, or 0 if not known yet
+     * @param baseScale  pixels per PDF point of the page bitmap
+     */
+    void bind(int pageIndex, float pageWidth, float pageHeight, float baseScale) {
+        if (pageIndex != this.pageIndex || baseScale != this.baseScale
+                || pageWidth != this.pageWidth || pageHeight != this.pageHeight) {
+            clearTiles();
+        }
+        this.pageIndex = pageIndex;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.baseScale = baseScale;
+        updateTiles();
+    }
+
+    /**
+     * Called when the zoom of the enclosing {@link ZoomableFrameLayout} settles.
+     */
+    void onZoomSettled(float zoom, float translateX, float translateY) {
+        this.zoom = zoom;
+        this.translateX = translateX;
+        this.translateY = translateY;
+        updateTiles();
+    }
+
+    long getTileBytes() {
+        return tileBytes;
+    }
+
+    /**
+     * Cancel pending tiles and release all rendered ones.
+     */
+    void clearTiles() {
+        for (Tile tile : tiles.values()) {
+            releaseTile(tile);
+        }
+        tiles.clear();
+        visibleKeys.clear();
+        tileBytes = 0;
+        tileScale = 0;
+        invalidate();
+    }
+
+    /**
+     * Deliver a rendered tile. Must be called on the main thread.
+     */
+    void onTileRendered(Tile tile, Bitmap bitmap) {
+        if (tile.cancelled || tiles.get(key(tile.column, tile.row)) != tile) {
+            renderer.releaseTile(bitmap);
+            return;
+        }
+        tile.bitmap = bitmap;
+        tileBytes += bitmap.getAllocationByteCount();
+        trimTiles();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // Tile bounds depend on the view size
+        clearTiles();
+        updateTiles();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        for (Tile tile : tiles.values()) {
+            if (tile.bitmap != null) {
+                canvas.drawBitmap(tile.bitmap, null, tile.bounds, tilePaint);
+            }
+        }
+    }
+
+    private void updateTiles() {
+        int viewWidth = getWidth();
+        int viewHeight = getHeight();
+        if (renderer == null || pageIndex < 0 || pageWidth <= 0 || pageHeight <= 0
+                || viewWidth == 0 || viewHeight == 0) {
+            return;
+        }
+
+        // The page is shown fitCenter in this view, then scaled by the zoom
+        float fitScale = Math.min(viewWidth / pageWidth, viewHeight / pageHeight);
+        float scale = fitScale * zoom;
+        if (scale <= baseScale) {
+            // The page bitmap already has enough detail
+            if (!tiles.isEmpty()) {
+                clearTiles();
+            }
+            return;
+        }
+        if (scale != tileScale) {
+            clearTiles();
+            tileScale = scale;
+        }
+
+        // Visible part of the view in content coordinates (zoom pivots around the center)
+        float centerX = viewWidth / 2f;
+        float centerY = viewHeight / 2f;
+        float visibleLeft = (-translateX - centerX) / zoom + centerX;
+        float visibleTop = (-translateY - centerY) / zoom + centerY;
+        float visibleRight = (viewWidth - translateX - centerX) / zoom + centerX;
+        float visibleBottom = (viewHeight - translateY - centerY) / zoom + centerY;
+
+        // Page placement in content coordinates
+        float pageLeft = (viewWidth - pageWidth * fitScale) / 2f;
+        float pageTop = (viewHeight - pageHeight * fitScale) / 2f;
+
+        // Visible region in page pixels at the tile scale
+        int pagePixelWidth = (int) Math.ceil(pageWidth * scale);
+        int pagePixelHeight = (int) Math.ceil(pageHeight * scale);
+        float left = Math.max(0, (visibleLeft - pageLeft) * zoom);
+        float top = Math.max(0, (visibleTop - pageTop) * zoom);
+        float right = Math.min(pagePixelWidth, (visibleRight - pageLeft) * zoom);
+        float bottom = Math.min(pagePixelHeight, (visibleBottom - pageTop) * zoom);
+        if (right <= left || bottom <= top) {
+            return;
+        }
+
+        int firstColumn = (int) (left / TILE_SIZE);
+        int lastColumn = (int) Math.ceil(right / TILE_SIZE) - 1;
+        int firstRow = (int) (top / TILE_SIZE);
+        int lastRow = (int) Math.ceil(bottom / TILE_SIZE) - 1;
+
+        Set<Long> visible = new HashSet<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                long key = key(column, row);
+                visible.add(key);
+                if (tiles.get(key) != null) {
+                    continue; // Also marks the tile as recently used
+                }
+
+                int tileLeft = column * TILE_SIZE;
+                int tileTop = row * TILE_SIZE;
+                Tile tile = new Tile(pageIndex, column, row, scale, tileLeft, tileTop,
+                        Math.min(TILE_SIZE, pagePixelWidth - tileLeft),
+                        Math.min(TILE_SIZE, pagePixelHeight - tileTop));
+                tile.bounds.set(
+                        pageLeft + tileLeft / zoom,
+                        pageTop + tileTop / zoom,
+                        pageLeft + (tileLeft + tile.width) / zoom,
+                        pageTop + (tileTop + tile.height) / zoom);
+                tiles.put(key, tile);
+                renderer.renderTile(this, tile);
+            }
+        }
+
+        // Pending tiles that scrolled out of view are not worth rendering any more
+        List<Long> stale = new ArrayList<>();
+        for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+            if (entry.getValue().bitmap == null && !visible.contains(entry.getKey())) {
+                stale.add(entry.getKey());
+            }
+        }
+        for (Long key : stale) {
+            releaseTile(tiles.remove(key));
+        }
+
+        visibleKeys = visible;
+        trimTiles();
+    }
+
+    /**
+     * Release least recently visible tiles until the tile bytes fit the budget.
+     * Tiles that are currently visible are never released.
+     */
+    private void trimTiles() {
+        Iterator<Map.Entry<Long, Tile>> iterator = tiles.entrySet().iterator();
+        while (tileBytes > maxTileBytes && iterator.hasNext()) {
+            Map.Entry<Long, Tile> entry = iterator.next();
+            Tile tile = entry.getValue();
+            if (tile.bitmap == null || visibleKeys.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            releaseTile(tile);
+        }
+    }
+
+    private void releaseTile(Tile tile) {
+        tile.cancelled = true;
+        if (tile.bitmap != null) {
+            tileBytes -= tile.bitmap.getAllocationByteCount();
+            renderer.releaseTile(tile.bitmap);
+            tile.bitmap = null;
+        }
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+}
@@ -46,6 +46,10 @@ public class PdfAnnotatorPlugin extends Plugin {
         String toolbarColor = call.getString("toolbarColor");
         String statusBarColor = call.getString("statusBarColor");
 
+        // Get performance options
+        int pageCacheSizeMb = call.getInt("pageCacheSizeMb", 0);
+        int prefetchDistance = call.getInt("prefetchDistance", PdfPagerAdapter.DEFAULT_PREFETCH_DISTANCE);
+
         // Get color palette
         JSArray colorPaletteArray = call.getArray("colorPalette");
         String[] colorPalette = null;
@@ -102,6 +106,10 @@ public class PdfAnnotatorPlugin extends Plugin {
             intent.putExtra(PdfViewerActivity.EXTRA_COLOR_PALETTE, colorPalette);
         }
 
+        // Add performance options
+        intent.putExtra(PdfViewerActivity.EXTRA_PAGE_CACHE_SIZE_MB, pageCacheSizeMb);
+        intent.putExtra(PdfViewerActivity.EXTRA_PREFETCH_DISTANCE, prefetchDistance);
+
         startActivityForResult(call, intent, "pdfViewerResult");
     }
 
@@ -1,10 +1,16 @@
 package com.capacitor.pdfannotator;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Matrix;
 import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelFileDescriptor;
 import android.util.Log;
+import android.util.LruCache;
+import android.util.Size;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,16 +19,24 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 
 import androidx.annotation.NonNull;
+import androidx.ink.strokes.Stroke;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PDF page adapter with AndroidX Ink API annotation support.
@@ -32,59 +46,227 @@ import java.util.concurrent.Executors;
 public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageViewHolder> {
 
     private static final String TAG = "PdfPagerAdapter";
-    private static final float RENDER_SCALE = 2.5f;
+    // Upper bound on page bitmap pixels, so posters and maps don't allocate huge bitmaps
+    private static final int MAX_PAGE_PIXELS = 4096 * 2048;
+    // Share of the page cache budget that may additionally sit in the reuse pool
+    private static final int BITMAP_POOL_DIVISOR = 4;
+    // Upper bound on parallel renders; each holds a page bitmap and an open document
+    private static final int MAX_RENDER_THREADS = 4;
+    // Rough size of a full-screen page bitmap on a large tablet, used to bound parallel renders by memory
+    private static final int ESTIMATED_PAGE_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 2;
+
+    // Quick first pass shown while the full page renders, in pixels per PDF point
+    private static final float PREVIEW_SCALE = 0.5f;
+    private static final int PREVIEW_CACHE_BYTES = 8 * 1024 * 1024;
+    // Share of the page cache budget used for zoomed-in detail tiles of a page
+    private static final int TILE_BUDGET_DIVISOR = 4;
+    // Compressed page rasters kept on disk across all documents
+    private static final long DISK_CACHE_BYTES = 256L * 1024 * 1024;
+
+    // Render order: closest to the current page first, then first queued
+    private static final Comparator<Runnable> RENDER_ORDER = (a, b) -> {
+        QueuedTask first = (QueuedTask) a;
+        QueuedTask second = (QueuedTask) b;
+        if (first.priority != second.priority) {
+            return Integer.compare(first.priority, second.priority);
+        }
+        return Long.compare(first.sequence, second.sequence);
+    };
 
     private final Context context;
-    private final PdfRenderer pdfRenderer;
-    private final ParcelFileDescriptor fileDescriptor;
+    private final RendererPool<RendererHandle> rendererPool;
     private final int pageCount;
     private final boolean enableInk;
-    private final ExecutorService executor = Executors.newFixedThreadPool(2);
-    private final Map<Integer, Bitmap> bitmapCache = new HashMap<>();
-    private final Map<Integer, AndroidXInkView> inkCanvasMap = new HashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool bitmapPool;
+    private final PageBitmapCache bitmapCache;
+    private final PageDiskCache diskCache;
+    private final File pdfFile;
+    private final long maxTileBytes;
+    // Low-resolution previews; small enough that evicted ones are left to the GC
+    private final LruCache<Integer, Bitmap> previewCache = new LruCache<Integer, Bitmap>(PREVIEW_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Integer key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+    // Annotations of every page shown or loaded; kept for the whole session
+    private final Map<Integer, PageInkModel> inkModels = new HashMap<>();
+    // Ink views of the bound holders, each bound to the model of the page its holder shows.
+    // Recycled ones are unbound and get the current settings again when bound.
+    private final List<AndroidXInkView> inkViews = new ArrayList<>();
     private final Map<Integer, ZoomableFrameLayout> zoomContainerMap = new HashMap<>();
+    // Holders bound to a page, so memory pressure can reach pages that are bound but off screen.
+    // Dropped when recycled, so holders the RecyclerView discards aren't kept alive.
+    private final List<PageViewHolder> holders = new ArrayList<>();
+    // Rebuilds loaded strokes as Ink strokes, one page at a time
+    private final ExecutorService strokeConverter = Executors.newSingleThreadExecutor();
+    // Pages whose loaded strokes are being rebuilt, and ones loaded again meanwhile; main thread only
+    private final Set<Integer> convertingPages = new HashSet<>();
+    private final Set<Integer> staleConversions = new HashSet<>();
 
     private int inkColor;
     private float inkWidth;
     private int brushType = AndroidXInkView.BRUSH_PRESSURE_PEN;
     private boolean drawingEnabled = false;
     private boolean eraserMode = false;
+    private boolean precisionEraser = false;
     private InkCanvasView.OnInkChangeListener onInkChangeListener;
     private AndroidXInkView.OnDrawingStateListener onDrawingStateListener;
+    // Created when an overview of the pages is first shown
+    private ThumbnailLoader thumbnailLoader;
     private ZoomableFrameLayout.OnGestureStateListener onGestureStateListener;
 
+    // Render scheduling, main thread only
+    private final Map<Integer, RenderTask> pendingRenders = new HashMap<>();
+    // Page sizes in PDF points, learned from renders
+    private final Map<Integer, Size> pageSizes = new HashMap<>();
+    private int currentPage = 0;
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    private long nextRenderSequence = 0;
+    private int lastPageBytes = 0;
+    // Size of a page item in pixels; pages are rendered to fit it at 1x zoom
+    private int viewportWidth;
+    private int viewportHeight;
+
+    // Set once cleanup() starts; pending renders are skipped
+    private volatile boolean closed = false;
+
     public PdfPagerAdapter(Context context, File pdfFile, boolean enableInk) throws IOException {
+        this(context, pdfFile, enableInk, 0);
+    }
+
+    /**
+     * @param pageCacheSizeMb budget for cached page bitmaps in MB, or 0 to derive it from the memory class
+     */
+    public PdfPagerAdapter(Context context, File pdfFile, boolean enableInk, int pageCacheSizeMb) throws IOException {
         this.context = context;
-        this.fileDescriptor = ParcelFileDescriptor.open(pdfFile, ParcelFileDescriptor.MODE_READ_ONLY);
-        this.pdfRenderer = new PdfRenderer(fileDescriptor);
-        this.pageCount = pdfRenderer.getPageCount();
         this.enableInk = enableInk;
+        int cacheBytes = PageBitmapCache.resolveMaxBytes(context, pageCacheSizeMb);
+        this.bitmapPool = new BitmapPool(Bitmap.Config.ARGB_8888, cacheBytes / BITMAP_POOL_DIVISOR);
+        this.bitmapCache = new PageBitmapCache(cacheBytes, bitmapPool);
+        this.maxTileBytes = cacheBytes / TILE_BUDGET_DIVISOR;
+        this.diskCache = new PageDiskCache(context.getCacheDir(), pdfFile, DISK_CACHE_BYTES);
+        this.pdfFile = pdfFile;
+
+        // Until the pager is laid out, assume pages fill the screen
+        this.viewportWidth = context.getResources().getDisplayMetrics().widthPixels;
+        this.viewportHeight = context.getResources().getDisplayMetrics().heightPixels;
+
+        // One renderer per render thread so pages render in parallel
+        int renderThreads = resolveRenderThreads(cacheBytes);
+        this.rendererPool = new RendererPool<>(() -> RendererHandle.open(pdfFile), renderThreads);
+
+        // Open the first renderer now to read the page count and fail early on unreadable files
+        try {
+            RendererHandle first = rendererPool.acquire();
+            this.pageCount = first.renderer.getPageCount();
+            rendererPool.release(first);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rendererPool.close();
+            throw new IOException("Interrupted while opening PDF", e);
+        }
+
+        // Core threads are started up front because queued tasks are re-inserted into the queue directly
+        this.executor = new ThreadPoolExecutor(renderThreads, renderThreads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(11, RENDER_ORDER));
+        this.executor.prestartAllCoreThreads();
+        Log.d(TAG, "Rendering with " + renderThreads + " thread(s)");
+    }
+
+    /**
+     * Number of parallel renders: one core is left for the UI, and the in-flight
+     * page bitmaps must stay well within the page cache budget.
+     */
+    private static int resolveRenderThreads(int cacheBytes) {
+        int byCores = Runtime.getRuntime().availableProcessors() - 1;
+        int byMemory = cacheBytes / (2 * ESTIMATED_PAGE_BYTES);
+        return Math.max(1, Math.min(MAX_RENDER_THREADS, Math.min(byCores, byMemory)));
+    }
+
+    /**
+     * Pixels per PDF point that make a page fit the viewport, capped at {@link #MAX_PAGE_PIXELS}.
+     */
+    static float computeRenderScale(int pageWidth, int pageHeight, int viewportWidth, int viewportHeight) {
+        float scale = Math.min((float) viewportWidth / pageWidth, (float) viewportHeight / pageHeight);
+        float pixels = pageWidth * scale * pageHeight * scale;
+        if (pixels > MAX_PAGE_PIXELS) {
+            scale *= (float) Math.sqrt(MAX_PAGE_PIXELS / pixels);
+        }
+        return scale;
+    }
+
+    /**
+     * Set the size of a page item in pixels, normally the ViewPager2 size.
+     * Pages already shown are rebound so they render for the new size.
+     */
+    public void setViewportSize(int width, int height) {
+        if (width <= 0 || height <= 0 || (width == viewportWidth && height == viewportHeight)) {
+            return;
+        }
+        viewportWidth = width;
+        viewportHeight = height;
+        Log.d(TAG, "Viewport: " + width + "x" + height);
+
+        // Queued prefetches would render for the old size
+        List<RenderTask> stale = new ArrayList<>();
+        for (RenderTask task : pendingRenders.values()) {
+            if (task.holder == null) {
+                stale.add(task);
+            }
+        }
+        for (RenderTask task : stale) {
+            cancelTask(task);
+        }
+        if (hasObservers()) {
+            // Called from layout, so rebind and prefetch again afterwards
+            mainHandler.post(() -> {
+                if (!closed) {
+                    notifyDataSetChanged();
+                    setCurrentPage(currentPage);
+                }
+            });
+        }
+    }
+
+    /**
+     * Render scale of a page for the current viewport, or 0 while the page size is unknown.
+     */
+    private float getRenderScale(int position) {
+        Size pageSize = pageSizes.get(position);
+        if (pageSize == null) {
+            return 0;
+        }
+        return computeRenderScale(pageSize.getWidth(), pageSize.getHeight(), viewportWidth, viewportHeight);
     }
 
     public void setInkColor(int color) {
         this.inkColor = color;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setInkColor(color);
         }
     }
 
     public void setInkWidth(float width) {
         this.inkWidth = width;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setStrokeWidth(width);
         }
     }
 
     public void setDrawingEnabled(boolean enabled) {
         this.drawingEnabled = enabled;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setDrawingEnabled(enabled);
         }
     }
 
     public void setBrushType(int type) {
         this.brushType = type;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setBrushTypeById(type);
         }
     }
@@ -95,7 +277,7 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
 
     public void setEraserMode(boolean enabled) {
         this.eraserMode = enabled;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setEraserMode(enabled);
         }
     }
@@ -104,12 +286,26 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
         return eraserMode;
     }
 
+    /**
+     * Make the eraser cut strokes where it passes instead of removing whole strokes.
+     */
+    public void setPrecisionEraser(boolean enabled) {
+        this.precisionEraser = enabled;
+        for (AndroidXInkView canvas : inkViews) {
+            canvas.setPrecisionEraser(enabled);
+        }
+    }
+
+    public boolean isPrecisionEraser() {
+        return precisionEraser;
+    }
+
     /**
      * Reset stylus eraser state on all ink canvases.
      * Called when user manually changes modes to prevent auto-eraser interference.
      */
     public void resetStylusEraserState() {
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.resetStylusEraserState();
         }
     }
@@ -118,9 +314,70 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
         this.onInkChangeListener = listener;
     }
 
+    private void onPageInkChanged(int pageIndex) {
+        invalidateThumbnail(pageIndex);
+        if (onInkChangeListener != null) {
+            onInkChangeListener.onInkChanged();
+        }
+    }
+
+    /**
+     * Start rendering page thumbnails on a background thread of their own.
+     *
+     * @param thumbnailWidth width of a thumbnail in pixels
+     */
+    void enableThumbnails(int thumbnailWidth, ThumbnailLoader.Listener listener) {
+        if (thumbnailLoader == null) {
+            thumbnailLoader = new ThumbnailLoader(pdfFile, diskCache, thumbnailWidth, this::getThumbnailOverlay);
+        }
+        thumbnailLoader.setListener(listener);
+    }
+
+    /**
+     * Pause thumbnail rendering while the overview is hidden. Stroke changes meanwhile
+     * are only noted, and the affected thumbnails are redrawn once it is shown again.
+     */
+    void setThumbnailsVisible(boolean visible) {
+        if (thumbnailLoader != null) {
+            thumbnailLoader.setVisible(visible);
+        }
+    }
+
+    /**
+     * The thumbnail of a page with its annotations, or null if it isn't ready. A missing
+     * thumbnail is queued and delivered to the listener given to {@link #enableThumbnails}.
+     */
+    Bitmap getThumbnail(int pageIndex) {
+        if (thumbnailLoader == null) {
+            return null;
+        }
+        Bitmap thumbnail = thumbnailLoader.get(pageIndex);
+        if (thumbnail == null) {
+            thumbnailLoader.request(pageIndex);
+        }
+        return thumbnail;
+    }
+
+    private void invalidateThumbnail(int pageIndex) {
+        if (thumbnailLoader != null) {
+            thumbnailLoader.invalidate(pageIndex);
+        }
+    }
+
+    /**
+     * Snapshot of a page's strokes for its thumbnail; only taken when the thumbnail renders.
+     */
+    private ThumbnailLoader.Overlay getThumbnailOverlay(int pageIndex) {
+        PageInkModel model = inkModels.get(pageIndex);
+        List<InkCanvasView.InkStroke> strokes = model != null
+                ? model.getVisibleInkStrokes() : Collections.emptyList();
+        // Ink views fill the page item, so strokes are in viewport coordinates
+        return new ThumbnailLoader.Overlay(strokes, viewportWidth, viewportHeight);
+    }
+
     public void setOnDrawingStateListener(AndroidXInkView.OnDrawingStateListener listener) {
         this.onDrawingStateListener = listener;
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
+        for (AndroidXInkView canvas : inkViews) {
             canvas.setOnDrawingStateListener(listener);
         }
     }
@@ -134,8 +391,8 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
 
     public List<InkCanvasView.InkStroke> getAllStrokes() {
         List<InkCanvasView.InkStroke> allStrokes = new ArrayList<>();
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
-            allStrokes.addAll(canvas.getStrokesAsInkStrokes());
+        for (PageInkModel model : inkModels.values()) {
+            allStrokes.addAll(model.getVisibleInkStrokes());
         }
         return allStrokes;
     }
@@ -145,8 +402,8 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      */
     public Map<Integer, List<InkCanvasView.InkStroke>> getStrokesByPage() {
         Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage = new HashMap<>();
-        for (Map.Entry<Integer, AndroidXInkView> entry : inkCanvasMap.entrySet()) {
-            List<InkCanvasView.InkStroke> strokes = entry.getValue().getStrokesAsInkStrokes();
+        for (Map.Entry<Integer, PageInkModel> entry : inkModels.entrySet()) {
+            List<InkCanvasView.InkStroke> strokes = entry.getValue().getVisibleInkStrokes();
             if (!strokes.isEmpty()) {
                 strokesByPage.put(entry.getKey(), strokes);
             }
@@ -159,33 +416,72 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      */
     public void loadStrokes(Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage) {
         for (Map.Entry<Integer, List<InkCanvasView.InkStroke>> entry : strokesByPage.entrySet()) {
-            int pageIndex = entry.getKey();
-            List<InkCanvasView.InkStroke> strokes = entry.getValue();
-
-            // Get or create canvas for this page
-            AndroidXInkView canvas = inkCanvasMap.get(pageIndex);
-            if (canvas == null) {
-                canvas = new AndroidXInkView(context);
-                canvas.setPageIndex(pageIndex);
-                canvas.setInkColor(inkColor);
-                canvas.setStrokeWidth(inkWidth);
-                canvas.setBrushTypeById(brushType);
-                canvas.setDrawingEnabled(drawingEnabled);
-                canvas.setOnInkChangeListenerJava(onInkChangeListener);
-                inkCanvasMap.put(pageIndex, canvas);
+            // Only the data is kept; a view is bound once the page is shown
+            PageInkModel model = getInkModel(entry.getKey());
+            model.loadStrokes(entry.getValue());
+            refreshInkViews(model);
+            invalidateThumbnail(model.getPageIndex());
+            if (convertingPages.contains(model.getPageIndex())) {
+                // The running rebuild only covers the strokes replaced just now
+                staleConversions.add(model.getPageIndex());
+            } else if (isModelBound(model)) {
+                convertLoadedStrokes(model);
             }
+        }
+    }
+
+    /**
+     * Rebuild a page's loaded strokes as Ink strokes in the background, so they are
+     * drawn from cached meshes instead of canvas paths. Until then they are drawn as paths.
+     */
+    private void convertLoadedStrokes(PageInkModel model) {
+        int pageIndex = model.getPageIndex();
+        if (!enableInk || closed || !model.hasLegacyStrokes() || !convertingPages.add(pageIndex)) {
+            return;
+        }
+        List<InkCanvasView.InkStroke> strokes = model.getConvertibleLegacyStrokes();
+        strokeConverter.execute(() -> {
+            Map<InkCanvasView.InkStroke, Stroke> converted = new HashMap<>();
+            for (InkCanvasView.InkStroke legacy : strokes) {
+                if (closed) {
+                    return;
+                }
+                Stroke stroke = PageInkModel.rebuildStroke(legacy);
+                if (stroke != null) {
+                    converted.put(legacy, stroke);
+                }
+            }
+            mainHandler.post(() -> {
+                convertingPages.remove(pageIndex);
+                if (closed) {
+                    return;
+                }
+                if (model.replaceLegacyStrokes(converted)) {
+                    refreshInkViews(model);
+                }
+                Log.d(TAG, "Rebuilt " + converted.size() + "/" + strokes.size() + " loaded strokes on page " + pageIndex);
+                if (staleConversions.remove(pageIndex)) {
+                    convertLoadedStrokes(model);
+                }
+            });
+        });
+    }
 
-            // Load strokes into canvas
-            canvas.loadStrokesFromInkStrokes(strokes);
+    private boolean isModelBound(PageInkModel model) {
+        for (AndroidXInkView canvas : inkViews) {
+            if (canvas.getPageIndex() == model.getPageIndex()) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
      * Check if any page has strokes.
      */
     public boolean hasAnyStrokes() {
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
-            if (canvas.hasStrokes()) {
+        for (PageInkModel model : inkModels.values()) {
+            if (model.hasStrokes()) {
                 return true;
             }
         }
@@ -193,9 +489,9 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
     }
 
     public void clearPage(int page) {
-        AndroidXInkView canvas = inkCanvasMap.get(page);
-        if (canvas != null) {
-            canvas.clear();
+        PageInkModel model = inkModels.get(page);
+        if (model != null && model.clear()) {
+            onInkModelChanged(model);
         }
     }
 
@@ -203,8 +499,10 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      * Clear all strokes from all pages.
      */
     public void clearAllPages() {
-        for (AndroidXInkView canvas : inkCanvasMap.values()) {
-            canvas.clear();
+        for (PageInkModel model : inkModels.values()) {
+            if (model.clear()) {
+                onInkModelChanged(model);
+            }
         }
     }
 
@@ -212,9 +510,9 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      * Undo the last stroke on a specific page.
      */
     public void undoPage(int page) {
-        AndroidXInkView canvas = inkCanvasMap.get(page);
-        if (canvas != null) {
-            canvas.undo();
+        PageInkModel model = inkModels.get(page);
+        if (model != null && model.undo() != null) {
+            onInkModelChanged(model);
         }
     }
 
@@ -222,9 +520,9 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      * Redo the last undone stroke on a specific page.
      */
     public void redoPage(int page) {
-        AndroidXInkView canvas = inkCanvasMap.get(page);
-        if (canvas != null) {
-            canvas.redo();
+        PageInkModel model = inkModels.get(page);
+        if (model != null && model.redo() != null) {
+            onInkModelChanged(model);
         }
     }
 
@@ -232,29 +530,98 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
      * Check if undo is available on a specific page.
      */
     public boolean canUndoPage(int page) {
-        AndroidXInkView canvas = inkCanvasMap.get(page);
-        return canvas != null && canvas.canUndo();
+        PageInkModel model = inkModels.get(page);
+        return model != null && model.canUndo();
     }
 
     /**
      * Check if redo is available on a specific page.
      */
     public boolean canRedoPage(int page) {
-        AndroidXInkView canvas = inkCanvasMap.get(page);
-        return canvas != null && canvas.canRedo();
+        PageInkModel model = inkModels.get(page);
+        return model != null && model.canRedo();
+    }
+
+    private PageInkModel getInkModel(int pageIndex) {
+        PageInkModel model = inkModels.get(pageIndex);
+        if (model == null) {
+            model = new PageInkModel(pageIndex);
+            inkModels.put(pageIndex, model);
+        }
+        return model;
+    }
+
+    /**
+     * Redraw ink views showing a model that was changed through the adapter.
+     */
+    private void refreshInkViews(PageInkModel model) {
+        for (AndroidXInkView canvas : inkViews) {
+            if (canvas.getPageIndex() == model.getPageIndex()) {
+                canvas.onModelChanged();
+            }
+        }
+    }
+
+    private void onInkModelChanged(PageInkModel model) {
+        refreshInkViews(model);
+        onPageInkChanged(model.getPageIndex());
     }
 
     @NonNull
     @Override
     public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_pdf_page, parent, false);
-        return new PageViewHolder(view);
+        PageViewHolder holder = new PageViewHolder(view);
+
+        // Re-render the visible region in detail whenever the zoom settles
+        holder.tileView.setTileRenderer(tileRenderer);
+        holder.tileView.setMaxTileBytes(maxTileBytes);
+        holder.zoomContainer.setOnZoomSettledListener((scale, translateX, translateY) -> {
+            holder.tileView.onZoomSettled(scale, translateX, translateY);
+            if (holder.inkView != null) {
+                holder.inkView.onZoomSettled();
+            }
+        });
+
+        // Setup ink canvas using AndroidX Ink API for low-latency stylus input.
+        // It stays with the holder and is bound to each page's ink model in turn.
+        if (enableInk) {
+            AndroidXInkView inkCanvas = new AndroidXInkView(context);
+            inkCanvas.setOnInkChangeListenerJava(() -> onPageInkChanged(inkCanvas.getPageIndex()));
+            holder.inkContainer.addView(inkCanvas, new FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                    FrameLayout.LayoutParams.MATCH_PARENT
+            ));
+            holder.inkView = inkCanvas;
+        }
+        return holder;
+    }
+
+    /**
+     * Apply the current drawing settings, which only reach ink views while they are bound.
+     */
+    private void applyInkSettings(AndroidXInkView inkCanvas) {
+        inkCanvas.setInkColor(inkColor);
+        inkCanvas.setStrokeWidth(inkWidth);
+        inkCanvas.setBrushTypeById(brushType);
+        inkCanvas.setDrawingEnabled(drawingEnabled);
+        inkCanvas.setEraserMode(eraserMode);
+        inkCanvas.setPrecisionEraser(precisionEraser);
+        inkCanvas.setOnDrawingStateListener(onDrawingStateListener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
+        if (!holders.contains(holder)) {
+            holders.add(holder);
+        }
+        // Invalidate any render still pending for the holder's previous binding
+        holder.bindToken++;
+        holder.trimmed = false;
+        cancelRender(holder);
+
         holder.progressBar.setVisibility(View.VISIBLE);
-        holder.imageView.setImageBitmap(null);
+        showBitmap(holder, null);
 
         // Store zoom container reference
         zoomContainerMap.put(position, holder.zoomContainer);
@@ -264,80 +631,350 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
             holder.zoomContainer.setOnGestureStateListener(onGestureStateListener);
         }
 
+        // Detail tiles for this page, once its size is known
+        Size pageSize = pageSizes.get(position);
+        holder.tileView.bind(position,
+                pageSize != null ? pageSize.getWidth() : 0,
+                pageSize != null ? pageSize.getHeight() : 0,
+                getRenderScale(position));
+
         // Reset zoom when page is bound
         holder.zoomContainer.resetZoom();
 
         // Check cache first
-        Bitmap cached = bitmapCache.get(position);
-        if (cached != null && !cached.isRecycled()) {
-            holder.imageView.setImageBitmap(cached);
+        Bitmap cached = bitmapCache.get(position, getRenderScale(position));
+        if (cached != null) {
+            showBitmap(holder, cached);
             holder.progressBar.setVisibility(View.GONE);
         } else {
-            // Render page in background
+            // Show the preview right away if there is one, then render the page in background
+            Bitmap preview = previewCache.get(position);
+            if (preview != null) {
+                showBitmap(holder, preview);
+                holder.progressBar.setVisibility(View.GONE);
+            }
             renderPage(position, holder);
         }
 
-        // Setup ink canvas using AndroidX Ink API for low-latency stylus input
-        if (enableInk) {
-            AndroidXInkView inkCanvas = inkCanvasMap.get(position);
-            if (inkCanvas == null) {
-                inkCanvas = new AndroidXInkView(context);
-                inkCanvas.setPageIndex(position);
-                inkCanvas.setInkColor(inkColor);
-                inkCanvas.setStrokeWidth(inkWidth);
-                inkCanvas.setBrushTypeById(brushType);
-                inkCanvas.setDrawingEnabled(drawingEnabled);
-                inkCanvas.setEraserMode(eraserMode);
-                inkCanvas.setOnInkChangeListenerJava(onInkChangeListener);
-                inkCanvas.setOnDrawingStateListener(onDrawingStateListener);
-                inkCanvasMap.put(position, inkCanvas);
+        // Show this page's annotations in the holder's ink view
+        if (holder.inkView != null) {
+            if (!inkViews.contains(holder.inkView)) {
+                applyInkSettings(holder.inkView);
+                inkViews.add(holder.inkView);
             }
+            PageInkModel model = getInkModel(position);
+            holder.inkView.bindModel(model);
+            convertLoadedStrokes(model);
+        }
+    }
+
+    /**
+     * Show the page in the holder once rendered, joining a render already queued for it.
+     */
+    private void renderPage(int position, PageViewHolder holder) {
+        RenderTask task = pendingRenders.get(position);
+        if (task != null && !task.isForViewport(viewportWidth, viewportHeight)) {
+            cancelTask(task);
+            task = null;
+        }
+        if (task == null) {
+            task = new RenderTask(position, viewportWidth, viewportHeight);
+            enqueueRender(task);
+        }
+        task.holder = holder;
+        task.bindToken = holder.bindToken;
+        // Someone is waiting for this page, so show a quick preview first if there is none yet
+        task.renderPreview = previewCache.get(position) == null;
+        holder.renderTask = task;
+    }
+
+    /**
+     * Queue a render that only fills the cache.
+     */
+    private void prefetchPage(int position) {
+        if (position < 0 || position >= pageCount || closed) {
+            return;
+        }
+        if (pendingRenders.containsKey(position) || bitmapCache.get(position, getRenderScale(position)) != null) {
+            return;
+        }
+        enqueueRender(new RenderTask(position, viewportWidth, viewportHeight));
+    }
+
+    private void enqueueRender(RenderTask task) {
+        pendingRenders.put(task.position, task);
+        enqueue(task);
+    }
+
+    private void enqueue(QueuedTask task) {
+        task.priority = Math.abs(task.position - currentPage);
+        task.sequence = nextRenderSequence++;
+        executor.execute(task);
+    }
+
+    /**
+     * Detach the holder from its pending render. The render keeps running as a
+     * prefetch if the page is still near the current page, and is cancelled otherwise.
+     */
+    private void cancelRender(PageViewHolder holder) {
+        RenderTask task = holder.renderTask;
+        if (task == null) {
+            return;
+        }
+        holder.renderTask = null;
+        if (task.holder == holder) {
+            task.holder = null;
+        }
+        if (Math.abs(task.position - currentPage) > getEffectivePrefetchDistance()) {
+            cancelTask(task);
+        }
+    }
 
-            // Remove from previous parent if exists
-            if (inkCanvas.getParent() != null) {
-                ((ViewGroup) inkCanvas.getParent()).removeView(inkCanvas);
+    private void cancelTask(RenderTask task) {
+        task.cancel();
+        executor.remove(task);
+        if (pendingRenders.get(task.position) == task) {
+            pendingRenders.remove(task.position);
+        }
+    }
+
+    /**
+     * Set how many pages on each side of the current page are rendered ahead of time.
+     */
+    public void setPrefetchDistance(int distance) {
+        this.prefetchDistance = Math.max(0, distance);
+    }
+
+    /**
+     * Called when the pager settles on a page. Queued renders are reordered so the
+     * current page comes first, then its neighbours; prefetches that left the window
+     * are dropped and missing pages inside it are queued.
+     */
+    public void setCurrentPage(int page) {
+        currentPage = page;
+        int distance = getEffectivePrefetchDistance();
+
+        List<RenderTask> outOfWindow = new ArrayList<>();
+        for (RenderTask task : pendingRenders.values()) {
+            if (task.holder == null && Math.abs(task.position - page) > distance) {
+                outOfWindow.add(task);
             }
+        }
+        for (RenderTask task : outOfWindow) {
+            cancelTask(task);
+        }
 
-            holder.inkContainer.removeAllViews();
-            holder.inkContainer.addView(inkCanvas, new FrameLayout.LayoutParams(
-                    FrameLayout.LayoutParams.MATCH_PARENT,
-                    FrameLayout.LayoutParams.MATCH_PARENT
-            ));
+        // Re-insert queued tasks so the queue orders them by their new distance
+        List<Runnable> queued = new ArrayList<>();
+        executor.getQueue().drainTo(queued);
+        for (Runnable runnable : queued) {
+            QueuedTask task = (QueuedTask) runnable;
+            task.priority = Math.abs(task.position - page);
+        }
+        executor.getQueue().addAll(queued);
+
+        // Pages released under memory pressure are rendered again as they come near
+        for (PageViewHolder holder : holders) {
+            int position = holder.getBindingAdapterPosition();
+            if (holder.trimmed && position != RecyclerView.NO_POSITION && Math.abs(position - page) <= distance) {
+                notifyItemChanged(position);
+            }
+        }
+
+        for (int d = 0; d <= distance; d++) {
+            prefetchPage(page - d);
+            if (d > 0) {
+                prefetchPage(page + d);
+            }
         }
     }
 
-    private void renderPage(int position, PageViewHolder holder) {
-        executor.execute(() -> {
-            try {
-                synchronized (pdfRenderer) {
-                    PdfRenderer.Page page = pdfRenderer.openPage(position);
+    /**
+     * Prefetch distance, reduced so the prefetch window fits in the page cache.
+     */
+    private int getEffectivePrefetchDistance() {
+        if (lastPageBytes <= 0) {
+            return prefetchDistance;
+        }
+        int pagesInBudget = bitmapCache.maxSize() / lastPageBytes;
+        return Math.max(0, Math.min(prefetchDistance, (pagesInBudget - 1) / 2));
+    }
+
+    /**
+     * Handle a finished render on the main thread.
+     */
+    private void onRenderFinished(RenderTask task, Bitmap bitmap) {
+        if (closed) {
+            bitmap.recycle();
+            return;
+        }
+        if (pendingRenders.get(task.position) == task) {
+            pendingRenders.remove(task.position);
+        }
+        lastPageBytes = bitmap.getAllocationByteCount();
+        pageSizes.put(task.position, new Size(task.pageWidth, task.pageHeight));
+
+        // Pin and show the bitmap before caching it: one larger than the whole cache
+        // budget is released as soon as it is cached unless something still uses it
+
+        // Save fresh renders for the next time the document is opened
+        if (!task.fromDisk) {
+            bitmapCache.pin(bitmap);
+            diskCache.put(task.position, task.renderScale, bitmap, written -> mainHandler.post(() -> {
+                if (!closed) {
+                    bitmapCache.unpin(written);
+                }
+            }));
+        }
+
+        if (task.isCurrent()) {
+            task.holder.renderTask = null;
+            showBitmap(task.holder, bitmap);
+            task.holder.progressBar.setVisibility(View.GONE);
+            task.holder.tileView.bind(task.position, task.pageWidth, task.pageHeight, task.renderScale);
+        }
+
+        // Keep the result even if the holder moved on; the page is likely to be shown again
+        bitmapCache.put(task.position, task.renderScale, bitmap);
+    }
+
+    /**
+     * Handle a finished preview on the main thread, showing it unless the full page is already shown.
+     */
+    private void onPreviewRendered(RenderTask task, Bitmap preview) {
+        if (closed) {
+            return;
+        }
+        previewCache.put(task.position, preview);
+
+        if (task.isCurrent() && task.holder.displayedBitmap == null) {
+            showBitmap(task.holder, preview);
+            task.holder.progressBar.setVisibility(View.GONE);
+        }
+    }
+
+    private void onRenderFailed(RenderTask task) {
+        if (pendingRenders.get(task.position) == task) {
+            pendingRenders.remove(task.position);
+        }
+        if (task.isCurrent()) {
+            task.holder.renderTask = null;
+            task.holder.progressBar.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Background render of a page into the cache, optionally shown in a view holder.
+     * Skipped if cancelled before the render starts; the result is only shown if the
+     * holder is still bound as it was when it joined the task.
+     */
+    private final class RenderTask extends QueuedTask {
+        private volatile boolean cancelled = false;
+
+        // Holder waiting for the result, main thread only
+        PageViewHolder holder;
+        int bindToken;
+
+        // Viewport the page is rendered to fit
+        final int viewportWidth;
+        final int viewportHeight;
+
+        // Page size in PDF points and pixels per point, set by the render
+        int pageWidth;
+        int pageHeight;
+        float renderScale;
+        // Whether the page came from the disk cache rather than the renderer
+        boolean fromDisk;
+
+        // Render a low-resolution preview before the full page, set on the main thread
+        volatile boolean renderPreview = false;
+
+        RenderTask(int position, int viewportWidth, int viewportHeight) {
+            super(position);
+            this.viewportWidth = viewportWidth;
+            this.viewportHeight = viewportHeight;
+        }
+
+        boolean isForViewport(int width, int height) {
+            return viewportWidth == width && viewportHeight == height;
+        }
 
-                    // Calculate bitmap size with scale
-                    int width = (int) (page.getWidth() * RENDER_SCALE);
-                    int height = (int) (page.getHeight() * RENDER_SCALE);
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Whether a holder is waiting for this render and still bound as it was. Main thread only.
+         */
+        boolean isCurrent() {
+            return !cancelled && holder != null && holder.bindToken == bindToken;
+        }
 
-                    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                    // Fill with white background
-                    bitmap.eraseColor(android.graphics.Color.WHITE);
+        @Override
+        public void run() {
+            if (cancelled || closed) {
+                return;
+            }
+            RendererHandle handle = null;
+            // Owned by this task until it is posted to the main thread
+            Bitmap bitmap = null;
+            try {
+                handle = rendererPool.acquire();
+                // The page may have scrolled away while waiting for a renderer
+                if (cancelled || closed) {
+                    return;
+                }
+                try (PdfRenderer.Page page = handle.renderer.openPage(position)) {
+                    pageWidth = page.getWidth();
+                    pageHeight = page.getHeight();
+                    renderScale = computeRenderScale(pageWidth, pageHeight, viewportWidth, viewportHeight);
 
-                    // Render the page
-                    page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
-                    page.close();
+                    // Match the on-screen size of the page at 1x zoom
+                    int width = Math.max(1, Math.round(pageWidth * renderScale));
+                    int height = Math.max(1, Math.round(pageHeight * renderScale));
 
-                    bitmapCache.put(position, bitmap);
+                    // Decoding a raster saved by an earlier session is much cheaper than rendering
+                    bitmap = diskCache.get(position, renderScale, width, height, bitmapPool);
+                    fromDisk = bitmap != null;
+                    if (bitmap == null) {
+                        // Quick low-resolution pass so the page isn't blank while the full render runs
+                        if (renderPreview) {
+                            Bitmap preview = renderPreview(page);
+                            mainHandler.post(() -> onPreviewRendered(this, preview));
+                            if (cancelled || closed) {
+                                return;
+                            }
+                        }
 
-                    holder.imageView.post(() -> {
-                        holder.imageView.setImageBitmap(bitmap);
-                        holder.progressBar.setVisibility(View.GONE);
-                    });
+                        // Reuse a released bitmap of the same size if there is one
+                        bitmap = bitmapPool.acquireOrCreate(width, height);
+                        // Fill with white background
+                        bitmap.eraseColor(android.graphics.Color.WHITE);
+
+                        // Render the page
+                        page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                    }
                 }
+
+                // Cache on the main thread so it is never touched concurrently
+                Bitmap result = bitmap;
+                bitmap = null;
+                mainHandler.post(() -> onRenderFinished(this, result));
             } catch (Exception e) {
-                Log.e(TAG, "Error rendering page " + position, e);
-                holder.imageView.post(() -> {
-                    holder.progressBar.setVisibility(View.GONE);
-                });
+                if (!closed) {
+                    Log.e(TAG, "Error rendering page " + position, e);
+                }
+                mainHandler.post(() -> onRenderFailed(this));
+            } finally {
+                // A failed render leaves the bitmap here; reuse it instead of losing it
+                if (bitmap != null) {
+                    bitmapPool.release(bitmap);
+                }
+                if (handle != null) {
+                    rendererPool.release(handle);
+                }
             }
-        });
+        }
     }
 
     @Override
@@ -348,33 +985,200 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
     @Override
     public void onViewRecycled(@NonNull PageViewHolder holder) {
         super.onViewRecycled(holder);
-        // Don't clear ink canvas - keep strokes
+        holder.bindToken++;
+        cancelRender(holder);
+        holder.tileView.clearTiles();
+        // Release the page bitmap so the cache may recycle it
+        showBitmap(holder, null);
+        // Strokes stay in the page's model; the view no longer shows or edits them
+        if (holder.inkView != null) {
+            holder.inkView.unbindModel();
+        }
+        releaseHolder(holder);
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(@NonNull PageViewHolder holder) {
+        // The RecyclerView discards the holder, typically because it is still animating
+        holder.bindToken++;
+        cancelRender(holder);
+        releaseHolder(holder);
+        return super.onFailedToRecycleView(holder);
+    }
+
+    /**
+     * Stop tracking a holder that no longer shows a page.
+     */
+    private void releaseHolder(PageViewHolder holder) {
+        holders.remove(holder);
+        if (holder.inkView != null) {
+            inkViews.remove(holder.inkView);
+        }
+    }
+
+    /**
+     * Show a page bitmap in a holder, keeping the cache informed of which bitmaps are on screen.
+     */
+    private void showBitmap(PageViewHolder holder, Bitmap bitmap) {
+        if (holder.displayedBitmap == bitmap) {
+            return;
+        }
+        Bitmap previous = holder.displayedBitmap;
+        holder.displayedBitmap = bitmap;
+        holder.imageView.setImageBitmap(bitmap);
+        bitmapCache.markDisplayed(bitmap);
+        bitmapCache.markHidden(previous);
     }
 
     public int getPageCount() {
         return pageCount;
     }
 
-    public void cleanup() {
-        executor.shutdown();
-        for (Bitmap bitmap : bitmapCache.values()) {
-            if (bitmap != null && !bitmap.isRecycled()) {
-                bitmap.recycle();
+    /**
+     * Release memory in response to {@link ComponentCallbacks2#onTrimMemory}, cheapest
+     * to restore first: prefetched and preview bitmaps and thumbnails at any level, then
+     * the full-resolution bitmaps and stroke layers of pages that are bound but not
+     * current, and finally the stroke paths of every page but the current one. Everything dropped is rebuilt
+     * from the disk cache or the stroke points when needed again.
+     */
+    public void trimMemory(int level) {
+        if (closed) {
+            return;
+        }
+        // Prefetches would refill what is about to be dropped
+        List<RenderTask> prefetches = new ArrayList<>();
+        for (RenderTask task : pendingRenders.values()) {
+            if (task.holder == null) {
+                prefetches.add(task);
             }
         }
-        bitmapCache.clear();
+        for (RenderTask task : prefetches) {
+            cancelTask(task);
+        }
+        previewCache.evictAll();
+        bitmapCache.trimToDisplayed();
+        if (thumbnailLoader != null) {
+            thumbnailLoader.trimMemory();
+        }
 
-        // Close native PDF renderer
-        if (pdfRenderer != null) {
-            pdfRenderer.close();
+        boolean releaseHidden = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        if (releaseHidden) {
+            for (PageViewHolder holder : holders) {
+                int position = holder.getBindingAdapterPosition();
+                if (position == currentPage || holder.displayedBitmap == null) {
+                    continue;
+                }
+                holder.bindToken++;
+                cancelRender(holder);
+                holder.tileView.clearTiles();
+                showBitmap(holder, null);
+                holder.progressBar.setVisibility(View.VISIBLE);
+                holder.trimmed = true;
+            }
+            bitmapCache.trimToDisplayed();
+            for (AndroidXInkView canvas : inkViews) {
+                if (canvas.getPageIndex() != currentPage) {
+                    canvas.releaseStrokeLayer();
+                }
+            }
         }
-        if (fileDescriptor != null) {
-            try {
-                fileDescriptor.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error closing file descriptor", e);
+        // Evicted page bitmaps and released tiles all ended up here
+        bitmapPool.clear();
+
+        boolean releasePaths = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+        if (releasePaths) {
+            for (PageInkModel model : inkModels.values()) {
+                if (model.getPageIndex() != currentPage) {
+                    model.releasePaths();
+                }
             }
         }
+        Log.d(TAG, "Trimmed memory at level " + level + ": " + getCacheStats());
+    }
+
+    /**
+     * Sizes of the in-memory caches, for debugging and metrics.
+     */
+    public CacheStats getCacheStats() {
+        long tileBytes = 0;
+        for (PageViewHolder holder : holders) {
+            tileBytes += holder.tileView.getTileBytes();
+        }
+        long strokeLayerBytes = 0;
+        for (AndroidXInkView canvas : inkViews) {
+            strokeLayerBytes += canvas.getStrokeLayerBytes();
+        }
+        int paths = 0;
+        for (PageInkModel model : inkModels.values()) {
+            paths += model.materializedPathCount();
+        }
+        return new CacheStats(bitmapCache.entryCount(), bitmapCache.size(), previewCache.size(),
+                bitmapPool.getCurrentBytes(), tileBytes,
+                thumbnailLoader != null ? thumbnailLoader.getCacheBytes() : 0,
+                strokeLayerBytes, inkModels.size(), paths);
+    }
+
+    /**
+     * Snapshot of the adapter's memory caches. Sizes are in bytes.
+     */
+    public static final class CacheStats {
+        public final int pageBitmaps;
+        public final int pageBitmapBytes;
+        public final int previewBytes;
+        public final long pooledBytes;
+        public final long tileBytes;
+        public final int thumbnailBytes;
+        public final long strokeLayerBytes;
+        public final int inkModels;
+        public final int strokePaths;
+
+        CacheStats(int pageBitmaps, int pageBitmapBytes, int previewBytes, long pooledBytes,
+                   long tileBytes, int thumbnailBytes, long strokeLayerBytes, int inkModels, int strokePaths) {
+            this.pageBitmaps = pageBitmaps;
+            this.pageBitmapBytes = pageBitmapBytes;
+            this.previewBytes = previewBytes;
+            this.pooledBytes = pooledBytes;
+            this.tileBytes = tileBytes;
+            this.thumbnailBytes = thumbnailBytes;
+            this.strokeLayerBytes = strokeLayerBytes;
+            this.inkModels = inkModels;
+            this.strokePaths = strokePaths;
+        }
+
+        @Override
+        public String toString() {
+            return "pages=" + pageBitmaps + " (" + (pageBitmapBytes / 1024) + " KB)"
+                    + ", previews=" + (previewBytes / 1024) + " KB"
+                    + ", pool=" + (pooledBytes / 1024) + " KB"
+                    + ", tiles=" + (tileBytes / 1024) + " KB"
+                    + ", thumbnails=" + (thumbnailBytes / 1024) + " KB"
+                    + ", strokeLayers=" + (strokeLayerBytes / 1024) + " KB"
+                    + ", inkModels=" + inkModels
+                    + ", strokePaths=" + strokePaths;
+        }
+    }
+
+    public void cleanup() {
+        closed = true;
+        executor.getQueue().clear();
+        executor.shutdown();
+        strokeConverter.shutdownNow();
+        convertingPages.clear();
+        staleConversions.clear();
+        pendingRenders.clear();
+        previewCache.evictAll();
+        if (thumbnailLoader != null) {
+            thumbnailLoader.close();
+        }
+        diskCache.close();
+        bitmapCache.clear();
+        bitmapPool.clear();
+
+        // Close native PDF renderers; ones still rendering are closed when they are returned
+        rendererPool.close();
     }
 
     /**
@@ -396,16 +1200,171 @@ public class PdfPagerAdapter extends RecyclerView.Adapter<PdfPagerAdapter.PageVi
         }
     }
 
+    /**
+     * Render an open page at {@link #PREVIEW_SCALE}. PdfRenderer only renders into
+     * ARGB_8888, so the result is copied to RGB_565 to halve what the preview cache holds.
+     */
+    private static Bitmap renderPreview(PdfRenderer.Page page) {
+        int width = Math.max(1, (int) (page.getWidth() * PREVIEW_SCALE));
+        int height = Math.max(1, (int) (page.getHeight() * PREVIEW_SCALE));
+
+        Bitmap argb = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        argb.eraseColor(android.graphics.Color.WHITE);
+        page.render(argb, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+
+        Bitmap preview = argb.copy(Bitmap.Config.RGB_565, false);
+        if (preview == null) {
+            return argb;
+        }
+        argb.recycle();
+        return preview;
+    }
+
+    private final PageTileView.TileRenderer tileRenderer = new PageTileView.TileRenderer() {
+        @Override
+        public void renderTile(PageTileView view, PageTileView.Tile tile) {
+            if (!closed) {
+                enqueue(new TileTask(view, tile));
+            }
+        }
+
+        @Override
+        public void releaseTile(Bitmap bitmap) {
+            bitmapPool.release(bitmap);
+        }
+    };
+
+    /**
+     * Background render of one detail tile: the tile's region of the page is mapped
+     * onto a tile-sized bitmap with a transform matrix.
+     */
+    private final class TileTask extends QueuedTask {
+        final PageTileView view;
+        final PageTileView.Tile tile;
+
+        TileTask(PageTileView view, PageTileView.Tile tile) {
+            super(tile.pageIndex);
+            this.view = view;
+            this.tile = tile;
+        }
+
+        @Override
+        public void run() {
+            if (tile.isCancelled() || closed) {
+                return;
+            }
+            RendererHandle handle = null;
+            // Owned by this task until it is posted to the main thread
+            Bitmap bitmap = null;
+            try {
+                handle = rendererPool.acquire();
+                if (tile.isCancelled() || closed) {
+                    return;
+                }
+                bitmap = bitmapPool.acquireOrCreate(tile.width, tile.height);
+                bitmap.eraseColor(android.graphics.Color.WHITE);
+
+                try (PdfRenderer.Page page = handle.renderer.openPage(tile.pageIndex)) {
+                    // Scale page points to tile pixels and shift the tile's region to the origin
+                    Matrix transform = new Matrix();
+                    transform.setScale(tile.scale, tile.scale);
+                    transform.postTranslate(-tile.left, -tile.top);
+                    page.render(bitmap, null, transform, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                }
+
+                Bitmap result = bitmap;
+                bitmap = null;
+                mainHandler.post(() -> {
+                    if (closed) {
+                        result.recycle();
+                    } else {
+                        view.onTileRendered(tile, result);
+                    }
+                });
+            } catch (Exception e) {
+                if (!closed) {
+                    Log.e(TAG, "Error rendering tile of page " + tile.pageIndex, e);
+                }
+            } finally {
+                // A failed render leaves the bitmap here; reuse it instead of losing it
+                if (bitmap != null) {
+                    bitmapPool.release(bitmap);
+                }
+                if (handle != null) {
+                    rendererPool.release(handle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Work item for the render executor, ordered by {@link #RENDER_ORDER}.
+     */
+    private abstract static class QueuedTask implements Runnable {
+        final int position;
+
+        // Scheduling state, only changed on the main thread while the task is not queued
+        int priority;
+        long sequence;
+
+        QueuedTask(int position) {
+            this.position = position;
+        }
+    }
+
+    /**
+     * A PdfRenderer together with the file descriptor it reads from.
+     */
+    static final class RendererHandle implements AutoCloseable {
+        final ParcelFileDescriptor fileDescriptor;
+        final PdfRenderer renderer;
+
+        private RendererHandle(ParcelFileDescriptor fileDescriptor, PdfRenderer renderer) {
+            this.fileDescriptor = fileDescriptor;
+            this.renderer = renderer;
+        }
+
+        static RendererHandle open(File pdfFile) throws IOException {
+            ParcelFileDescriptor fileDescriptor = ParcelFileDescriptor.open(pdfFile, ParcelFileDescriptor.MODE_READ_ONLY);
+            try {
+                return new RendererHandle(fileDescriptor, new PdfRenderer(fileDescriptor));
+            } catch (IOException | RuntimeException e) {
+                fileDescriptor.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            renderer.close();
+            try {
+                fileDescriptor.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Error closing file descriptor", e);
+            }
+        }
+    }
+
     static class PageViewHolder extends RecyclerView.ViewHolder {
         ZoomableFrameLayout zoomContainer;
         ImageView imageView;
+        PageTileView tileView;
         FrameLayout inkContainer;
+        // Null when ink is disabled
+        AndroidXInkView inkView;
         ProgressBar progressBar;
+        Bitmap displayedBitmap;
+        // Incremented on every bind and recycle so late renders can detect they are stale
+        int bindToken;
+        RenderTask renderTask;
+        // Bitmap released under memory pressure; rebound when the page comes near again
+        boolean trimmed;
 
         PageViewHolder(@NonNull View itemView) {
             super(itemView);
             zoomContainer = (ZoomableFrameLayout) itemView;
             imageView = itemView.findViewById(R.id.pageImage);
+            tileView = itemView.findViewById(R.id.pageTiles);
             inkContainer = itemView.findViewById(R.id.inkContainer);
             progressBar = itemView.findViewById(R.id.progressBar);
         }
@@ -21,6 +21,8 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -51,6 +53,10 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
     public static final String EXTRA_STATUS_BAR_COLOR = "status_bar_color";
     public static final String EXTRA_COLOR_PALETTE = "color_palette";
 
+    // Performance extras
+    public static final String EXTRA_PAGE_CACHE_SIZE_MB = "page_cache_size_mb";
+    public static final String EXTRA_PREFETCH_DISTANCE = "prefetch_distance";
+
     // Result extras
     public static final String RESULT_SAVED = "saved";
     public static final String RESULT_SAVED_PATH = "saved_path";
@@ -62,6 +68,8 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
     private FloatingActionButton fabDraw;
     private View colorPicker;
     private Menu optionsMenu;
+    private RecyclerView thumbnailStrip;
+    private PageThumbnailAdapter thumbnailAdapter;
 
     // Floating toolbox views
     private View floatingToolbox;
@@ -89,8 +97,11 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
     private float currentInkWidth = 10f; // Medium size default
     private int currentBrushType = AndroidXInkView.BRUSH_PRESSURE_PEN;
     private int initialPage = 0;
+    private int pageCacheSizeMb = 0; // 0 = derive from memory class
+    private int prefetchDistance = PdfPagerAdapter.DEFAULT_PREFETCH_DISTANCE;
     private boolean isDrawingMode = false;
     private boolean isEraserMode = false;
+    private boolean isPrecisionEraser = false;
 
     // Theme colors
     private int primaryColor = 0;
@@ -157,6 +168,8 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
 
         currentInkWidth = intent.getFloatExtra(EXTRA_INK_WIDTH, SIZE_MEDIUM);
         initialPage = intent.getIntExtra(EXTRA_INITIAL_PAGE, 0);
+        pageCacheSizeMb = intent.getIntExtra(EXTRA_PAGE_CACHE_SIZE_MB, 0);
+        prefetchDistance = intent.getIntExtra(EXTRA_PREFETCH_DISTANCE, PdfPagerAdapter.DEFAULT_PREFETCH_DISTANCE);
 
         String title = intent.getStringExtra(EXTRA_TITLE);
         if (title != null && !title.isEmpty()) {
@@ -248,6 +261,8 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
         viewPager = findViewById(R.id.viewPager);
         fabDraw = findViewById(R.id.fabDraw);
         colorPicker = findViewById(R.id.colorPicker);
+        thumbnailStrip = findViewById(R.id.thumbnailStrip);
+        thumbnailStrip.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
 
         // Setup floating toolbox
         setupFloatingToolbox();
@@ -298,6 +313,11 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
 
         // Eraser toggle
         btnEraser.setOnClickListener(v -> toggleEraserMode());
+        // Long press switches between erasing whole strokes and cutting them
+        btnEraser.setOnLongClickListener(v -> {
+            togglePrecisionEraser();
+            return true;
+        });
 
         // Clear all
         btnClear.setOnClickListener(v -> showClearConfirmation());
@@ -525,7 +545,22 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
         }
 
         if (isEraserMode) {
-            Toast.makeText(this, R.string.eraser, Toast.LENGTH_SHORT).show();
+            Toast.makeText(this, isPrecisionEraser ? R.string.precision_eraser : R.string.eraser,
+                    Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void togglePrecisionEraser() {
+        isPrecisionEraser = !isPrecisionEraser;
+        if (pagerAdapter != null) {
+            pagerAdapter.setPrecisionEraser(isPrecisionEraser);
+        }
+
+        if (isEraserMode) {
+            Toast.makeText(this, isPrecisionEraser ? R.string.precision_eraser : R.string.eraser,
+                    Toast.LENGTH_SHORT).show();
+        } else {
+            toggleEraserMode();
         }
     }
 
@@ -556,7 +591,7 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
                 runOnUiThread(() -> {
                     try {
                         // Use native PdfRenderer via PdfPagerAdapter for display
-                        pagerAdapter = new PdfPagerAdapter(this, pdfFile, enableInk);
+                        pagerAdapter = new PdfPagerAdapter(this, pdfFile, enableInk, pageCacheSizeMb);
                         pagerAdapter.setInkColor(currentInkColor);
                         pagerAdapter.setInkWidth(currentInkWidth);
                         pagerAdapter.setBrushType(currentBrushType);
@@ -564,6 +599,14 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
                         pagerAdapter.setOnInkChangeListener(this);
                         pagerAdapter.setOnDrawingStateListener(this);
                         pagerAdapter.setOnGestureStateListener(this);
+                        pagerAdapter.setPrefetchDistance(prefetchDistance);
+                        // Render pages to fit the pager, and again whenever its size changes
+                        pagerAdapter.setViewportSize(viewPager.getWidth(), viewPager.getHeight());
+                        viewPager.addOnLayoutChangeListener((v, left, top, right, bottom,
+                                oldLeft, oldTop, oldRight, oldBottom) ->
+                                pagerAdapter.setViewportSize(right - left, bottom - top));
+                        // Start rendering the initial page and its neighbours before the pager binds
+                        pagerAdapter.setCurrentPage(initialPage);
 
                         // Load saved annotations
                         if (!savedAnnotations.isEmpty()) {
@@ -583,6 +626,10 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
                         viewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
                             @Override
                             public void onPageSelected(int position) {
+                                pagerAdapter.setCurrentPage(position);
+                                if (thumbnailAdapter != null) {
+                                    thumbnailAdapter.setCurrentPage(position);
+                                }
                                 updatePageTitle();
                                 // Update undo/redo state for new page
                                 updateMenuState();
@@ -745,6 +792,7 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
         MenuItem undoItem = optionsMenu.findItem(R.id.action_undo);
         MenuItem redoItem = optionsMenu.findItem(R.id.action_redo);
         MenuItem clearItem = optionsMenu.findItem(R.id.action_clear);
+        MenuItem pagesItem = optionsMenu.findItem(R.id.action_pages);
 
         int currentPage = viewPager != null ? viewPager.getCurrentItem() : 0;
 
@@ -756,6 +804,11 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
             redoItem.setVisible(false); // Using floating toolbox instead
         }
 
+        // Page overview needs the document to be loaded
+        if (pagesItem != null) {
+            pagesItem.setEnabled(pagerAdapter != null);
+        }
+
         // Clear only enabled when there are annotations and not in drawing mode
         if (clearItem != null) {
             boolean hasAnnotations = pagerAdapter != null && pagerAdapter.hasAnyStrokes();
@@ -779,10 +832,41 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
         } else if (id == R.id.action_clear) {
             showClearConfirmation();
             return true;
+        } else if (id == R.id.action_pages) {
+            toggleThumbnailStrip();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Show or hide the page overview strip. Thumbnails are only rendered once it is first shown.
+     */
+    private void toggleThumbnailStrip() {
+        if (pagerAdapter == null) return;
+
+        if (thumbnailStrip.getVisibility() == View.VISIBLE) {
+            thumbnailStrip.setVisibility(View.GONE);
+            pagerAdapter.setThumbnailsVisible(false);
+            fabDraw.setTranslationY(0);
+            return;
+        }
+
+        if (thumbnailAdapter == null) {
+            int thumbnailWidth = getResources().getDimensionPixelSize(R.dimen.page_thumbnail_width);
+            thumbnailAdapter = new PageThumbnailAdapter(this, pagerAdapter, thumbnailWidth,
+                    page -> viewPager.setCurrentItem(page, false));
+            thumbnailStrip.setAdapter(thumbnailAdapter);
+        }
+        int currentPage = viewPager.getCurrentItem();
+        thumbnailAdapter.setCurrentPage(currentPage);
+        thumbnailStrip.scrollToPosition(currentPage);
+        thumbnailStrip.setVisibility(View.VISIBLE);
+        pagerAdapter.setThumbnailsVisible(true);
+        // Keep the draw button above the strip
+        fabDraw.setTranslationY(-getResources().getDimensionPixelSize(R.dimen.page_thumbnail_strip_height));
+    }
+
     private void undoCurrentPage() {
         if (pagerAdapter != null) {
             int currentPage = viewPager.getCurrentItem();
@@ -828,6 +912,16 @@ public class PdfViewerActivity extends AppCompatActivity implements InkCanvasVie
         super.onBackPressed();
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Drop page bitmaps and paths that can be rebuilt, least needed first
+        if (pagerAdapter != null) {
+            pagerAdapter.trimMemory(level);
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -0,0 +1,155 @@
+package com.capacitor.pdfannotator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size pool of renderers that are leased to one thread at a time.
+ *
+ * PdfRenderer allows only one open page per instance, so rendering several
+ * pages in parallel needs one renderer per thread. Renderers are opened on
+ * demand up to {@code maxSize}; when all of them are leased,
+ * {@link #acquire()} waits for one to be released.
+ *
+ * Kept free of Android types so it can be tested on the JVM.
+ */
+final class RendererPool<T extends AutoCloseable> {
+
+    /**
+     * Opens a new renderer instance.
+     */
+    interface Opener<T> {
+        T open() throws IOException;
+    }
+
+    private final Opener<T> opener;
+    private final int maxSize;
+
+    private final ArrayDeque<T> idle = new ArrayDeque<>();
+    private final Map<T, Boolean> leased = new IdentityHashMap<>();
+    // Renderers being opened outside the lock; they count towards maxSize
+    private int opening = 0;
+    private boolean closed = false;
+
+    RendererPool(Opener<T> opener, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, was " + maxSize);
+        }
+        this.opener = opener;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Lease a renderer, opening a new one if the pool is not full and none is idle.
+     * The renderer must be handed back with {@link #release(AutoCloseable)}.
+     *
+     * @throws IllegalStateException if the pool has been closed
+     */
+    T acquire() throws IOException, InterruptedException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Renderer pool is closed");
+                }
+                T renderer = idle.poll();
+                if (renderer != null) {
+                    leased.put(renderer, Boolean.TRUE);
+                    return renderer;
+                }
+                if (leased.size() + opening < maxSize) {
+                    opening++;
+                    break;
+                }
+                wait();
+            }
+        }
+
+        // Open outside the lock so other threads can keep leasing and releasing
+        T renderer;
+        try {
+            renderer = opener.open();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                opening--;
+                // Let a waiting thread try to open one instead
+                notifyAll();
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            opening--;
+            if (!closed) {
+                leased.put(renderer, Boolean.TRUE);
+                return renderer;
+            }
+            notifyAll();
+        }
+        closeQuietly(renderer);
+        throw new IllegalStateException("Renderer pool is closed");
+    }
+
+    /**
+     * Return a leased renderer. If the pool has been closed the renderer is closed instead.
+     *
+     * @throws IllegalArgumentException if the renderer is not currently leased from this pool
+     */
+    void release(T renderer) {
+        synchronized (this) {
+            if (leased.remove(renderer) == null) {
+                throw new IllegalArgumentException("Renderer is not leased from this pool");
+            }
+            if (!closed) {
+                idle.push(renderer);
+                notifyAll();
+                return;
+            }
+        }
+        closeQuietly(renderer);
+    }
+
+    /**
+     * Close idle renderers and refuse new leases. Leased renderers are closed when released.
+     */
+    void close() {
+        ArrayDeque<T> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            notifyAll();
+        }
+        for (T renderer : toClose) {
+            closeQuietly(renderer);
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized int getOpenCount() {
+        return idle.size() + leased.size();
+    }
+
+    synchronized int getLeasedCount() {
+        return leased.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing useful to do when closing fails
+        }
+    }
+}
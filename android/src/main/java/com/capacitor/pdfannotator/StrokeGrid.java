@@ -0,0 +1,146 @@
+package com.capacitor.pdfannotator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the bounding boxes of a page's strokes, so hit tests such as
+ * the eraser only look at strokes near the touch instead of every stroke on the page.
+ *
+ * Each item is listed in every cell its bounds overlap; a query visits the cells
+ * overlapping the query rectangle and reports each item whose bounds intersect it
+ * once. Items are compared by identity. Not thread-safe.
+ */
+final class StrokeGrid<T> {
+
+    private static final class Entry<T> {
+        final T item;
+        final float left;
+        final float top;
+        final float right;
+        final float bottom;
+        // Query that last reported the entry, so items spanning several cells are reported once
+        int lastQuery;
+
+        Entry(T item, float left, float top, float right, float bottom) {
+            this.item = item;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+    }
+
+    private final float cellSize;
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private int queryCount = 0;
+
+    StrokeGrid(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Add an item with its bounds, replacing the bounds if it is already indexed.
+     */
+    void insert(T item, float left, float top, float right, float bottom) {
+        remove(item);
+        Entry<T> entry = new Entry<>(item, left, top, right, bottom);
+        entries.put(item, entry);
+        int maxX = cell(right);
+        int maxY = cell(bottom);
+        for (int x = cell(left); x <= maxX; x++) {
+            for (int y = cell(top); y <= maxY; y++) {
+                List<Entry<T>> list = cells.get(key(x, y));
+                if (list == null) {
+                    list = new ArrayList<>();
+                    cells.put(key(x, y), list);
+                }
+                list.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Remove an item. Returns false if it wasn't indexed.
+     */
+    boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        int maxX = cell(entry.right);
+        int maxY = cell(entry.bottom);
+        for (int x = cell(entry.left); x <= maxX; x++) {
+            for (int y = cell(entry.top); y <= maxY; y++) {
+                Long key = key(x, y);
+                List<Entry<T>> list = cells.get(key);
+                if (list == null) {
+                    continue;
+                }
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        cells.clear();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Add every item whose bounds intersect the rectangle to {@code out}, each once.
+     * Candidates still need an exact test against their geometry.
+     */
+    void query(float left, float top, float right, float bottom, List<T> out) {
+        if (entries.isEmpty() || left > right || top > bottom) {
+            return;
+        }
+        int query = ++queryCount;
+        int maxX = cell(right);
+        int maxY = cell(bottom);
+        for (int x = cell(left); x <= maxX; x++) {
+            for (int y = cell(top); y <= maxY; y++) {
+                List<Entry<T>> list = cells.get(key(x, y));
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size(); i++) {
+                    Entry<T> entry = list.get(i);
+                    if (entry.lastQuery != query
+                            && entry.left <= right && entry.right >= left
+                            && entry.top <= bottom && entry.bottom >= top) {
+                        entry.lastQuery = query;
+                        out.add(entry.item);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static Long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,191 @@
+package com.capacitor.pdfannotator;
+
+import java.util.Arrays;
+
+/**
+ * Geometry of the precision eraser: which parts of a stroke's polyline survive a set
+ * of eraser circles.
+ *
+ * Each segment is clipped analytically against every circle, so cuts land exactly
+ * on the circle edges, and the result is reported as ranges in fractional point
+ * index space: a range {@code [2.5, 7.0]} starts halfway between points 2 and 3 and
+ * ends at point 7. Callers turn ranges into strokes, interpolating the end points
+ * where they can. Work is linear in points times circles, with a bounding box
+ * check per segment, so it runs on every eraser move.
+ */
+final class StrokeSplitter {
+
+    // Kept ranges shorter than this, in points, are dropped as slivers
+    private static final float MIN_RANGE = 1e-3f;
+    // Cuts shorter than this in pixels are ignored, so an end left on the eraser's edge
+    // isn't cut again by the next move at the same spot
+    private static final float MIN_CUT_LENGTH = 0.05f;
+
+    private StrokeSplitter() {
+    }
+
+    /**
+     * Parts of the polyline outside all circles, as {@code [from, to]} pairs in
+     * fractional point index space, in order. Returns null if no circle touches the
+     * polyline, and an empty array if it is erased completely.
+     *
+     * @param coords interleaved x/y of the points, valid up to {@code 2 * pointCount}
+     * @param circles interleaved x/y of the circle centers, valid up to {@code 2 * circleCount}
+     */
+    static float[] keptRanges(float[] coords, int pointCount, float[] circles, int circleCount, float radius) {
+        if (pointCount == 0 || circleCount == 0) {
+            return null;
+        }
+        float radiusSq = radius * radius;
+        if (pointCount == 1) {
+            for (int c = 0; c < circleCount; c++) {
+                float dx = coords[0] - circles[2 * c];
+                float dy = coords[1] - circles[2 * c + 1];
+                if (dx * dx + dy * dy <= radiusSq) {
+                    return new float[0];
+                }
+            }
+            return null;
+        }
+
+        float[] ranges = new float[8];
+        int rangeCount = 0;
+        // Erased intervals of the current segment as t0, t1 pairs
+        float[] cuts = new float[2 * circleCount];
+        boolean erased = false;
+        boolean open = true;
+        float start = 0f;
+
+        for (int i = 0; i < pointCount - 1; i++) {
+            float ax = coords[2 * i];
+            float ay = coords[2 * i + 1];
+            float bx = coords[2 * i + 2];
+            float by = coords[2 * i + 3];
+            float left = Math.min(ax, bx) - radius;
+            float top = Math.min(ay, by) - radius;
+            float right = Math.max(ax, bx) + radius;
+            float bottom = Math.max(ay, by) + radius;
+
+            int cutCount = 0;
+            for (int c = 0; c < circleCount; c++) {
+                float cx = circles[2 * c];
+                float cy = circles[2 * c + 1];
+                if (cx < left || cx > right || cy < top || cy > bottom) {
+                    continue;
+                }
+                cutCount = clip(ax, ay, bx, by, cx, cy, radiusSq, cuts, cutCount);
+            }
+            if (cutCount == 0) {
+                if (!open) {
+                    // Rounding left the previous cut short of this segment's start
+                    open = true;
+                    start = i;
+                }
+                continue;
+            }
+            erased = true;
+            cutCount = merge(cuts, cutCount);
+
+            for (int k = 0; k < cutCount; k++) {
+                float t0 = cuts[2 * k];
+                float t1 = cuts[2 * k + 1];
+                if (!open) {
+                    // Rounding left the previous cut short of this segment's start
+                    open = true;
+                    start = i;
+                }
+                if (i + t0 - start > MIN_RANGE) {
+                    if (rangeCount + 2 > ranges.length) {
+                        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                    }
+                    ranges[rangeCount++] = start;
+                    ranges[rangeCount++] = i + t0;
+                }
+                open = t1 < 1f;
+                start = i + t1;
+            }
+        }
+
+        if (!erased) {
+            return null;
+        }
+        if (open && pointCount - 1 - start > MIN_RANGE) {
+            if (rangeCount + 2 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length + 2);
+            }
+            ranges[rangeCount++] = start;
+            ranges[rangeCount++] = pointCount - 1;
+        }
+        return Arrays.copyOf(ranges, rangeCount);
+    }
+
+    /**
+     * Append the part of segment a-b inside the circle to {@code cuts} as a t0, t1 pair,
+     * returning the new number of pairs.
+     */
+    private static int clip(float ax, float ay, float bx, float by, float cx, float cy,
+                            float radiusSq, float[] cuts, int cutCount) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float fx = ax - cx;
+        float fy = ay - cy;
+        float a = dx * dx + dy * dy;
+        float c = fx * fx + fy * fy - radiusSq;
+        float t0;
+        float t1;
+        if (a == 0f) {
+            // Repeated point
+            if (c > 0f) {
+                return cutCount;
+            }
+            t0 = 0f;
+            t1 = 1f;
+        } else {
+            // |a + t(b - a) - center|^2 = r^2
+            float b = 2f * (fx * dx + fy * dy);
+            float discriminant = b * b - 4f * a * c;
+            if (discriminant < 0f) {
+                return cutCount;
+            }
+            float root = (float) Math.sqrt(discriminant);
+            t0 = Math.max(0f, (-b - root) / (2f * a));
+            t1 = Math.min(1f, (-b + root) / (2f * a));
+            if ((t1 - t0) * (float) Math.sqrt(a) < MIN_CUT_LENGTH) {
+                return cutCount;
+            }
+        }
+        cuts[2 * cutCount] = t0;
+        cuts[2 * cutCount + 1] = t1;
+        return cutCount + 1;
+    }
+
+    /**
+     * Sort intervals by start and merge overlapping ones in place, returning the new count.
+     */
+    private static int merge(float[] cuts, int cutCount) {
+        // Insertion sort; a segment rarely meets more than a couple of circles
+        for (int i = 1; i < cutCount; i++) {
+            float t0 = cuts[2 * i];
+            float t1 = cuts[2 * i + 1];
+            int j = i - 1;
+            while (j >= 0 && cuts[2 * j] > t0) {
+                cuts[2 * j + 2] = cuts[2 * j];
+                cuts[2 * j + 3] = cuts[2 * j + 1];
+                j--;
+            }
+            cuts[2 * j + 2] = t0;
+            cuts[2 * j + 3] = t1;
+        }
+        int merged = 0;
+        for (int i = 0; i < cutCount; i++) {
+            if (merged > 0 && cuts[2 * i] <= cuts[2 * merged - 1]) {
+                cuts[2 * merged - 1] = Math.max(cuts[2 * merged - 1], cuts[2 * i + 1]);
+            } else {
+                cuts[2 * merged] = cuts[2 * i];
+                cuts[2 * merged + 1] = cuts[2 * i + 1];
+                merged++;
+            }
+        }
+        return merged;
+    }
+}
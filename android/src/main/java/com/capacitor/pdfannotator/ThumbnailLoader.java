@@ -0,0 +1,340 @@
+package com.capacitor.pdfannotator;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders small page thumbnails with the page's annotations drawn on top.
+ *
+ * Thumbnails have their own PdfRenderer and a single background-priority thread,
+ * so they never hold up the renderers that draw the full pages. The page itself
+ * is cached on disk through {@link PageDiskCache}; the annotations are composited
+ * on every render, so a page whose strokes change only needs its small raster
+ * decoded and drawn over again. Finished thumbnails are RGB_565 and kept in a
+ * memory LRU.
+ *
+ * Requests are queued on the main thread and handed to the render thread one at a
+ * time, and a page's strokes are only snapshotted through the {@link OverlaySource}
+ * when its render starts. Stroke changes therefore only mark pages as out of date,
+ * and nothing is rendered while the thumbnails are hidden.
+ *
+ * Public methods must be called on the main thread.
+ */
+final class ThumbnailLoader {
+
+    private static final String TAG = "ThumbnailLoader";
+    private static final int MEMORY_CACHE_BYTES = 4 * 1024 * 1024;
+
+    interface Listener {
+        void onThumbnailReady(int pageIndex, Bitmap thumbnail);
+    }
+
+    /**
+     * Snapshot of a page's strokes, taken on the main thread when its thumbnail render starts.
+     */
+    interface OverlaySource {
+        Overlay getOverlay(int pageIndex);
+    }
+
+    /**
+     * Strokes of a page in ink view coordinates, along with the size of the view
+     * they were drawn in. The page is shown fit-center in that view.
+     */
+    static final class Overlay {
+        final List<InkCanvasView.InkStroke> strokes;
+        final int viewWidth;
+        final int viewHeight;
+
+        Overlay(List<InkCanvasView.InkStroke> strokes, int viewWidth, int viewHeight) {
+            this.strokes = strokes;
+            this.viewWidth = viewWidth;
+            this.viewHeight = viewHeight;
+        }
+    }
+
+    private final RendererPool<PdfPagerAdapter.RendererHandle> rendererPool;
+    private final PageDiskCache diskCache;
+    private final int thumbnailWidth;
+    private final OverlaySource overlaySource;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Decoded rasters are copied to RGB_565 right away, so there is nothing worth pooling
+    private final BitmapPool decodePool = new BitmapPool(Bitmap.Config.ARGB_8888, 0);
+    // Small enough that evicted thumbnails are left to the GC
+    private final LruCache<Integer, Bitmap> cache = new LruCache<Integer, Bitmap>(MEMORY_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Integer key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+    // Pages waiting to render, requested last first so the part of the strip in view wins
+    private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+    private final Set<Integer> queued = new HashSet<>();
+    // Cached thumbnails whose strokes changed while hidden
+    private final Set<Integer> stale = new HashSet<>();
+    // Page on the render thread, or -1, and whether its strokes changed since it started
+    private int running = -1;
+    private boolean runningStale = false;
+
+    private Listener listener;
+    private boolean visible = true;
+    private volatile boolean closed = false;
+
+    /**
+     * @param thumbnailWidth width of a thumbnail in pixels; the height follows the page
+     */
+    ThumbnailLoader(File pdfFile, PageDiskCache diskCache, int thumbnailWidth, OverlaySource overlaySource) {
+        this.rendererPool = new RendererPool<>(() -> PdfPagerAdapter.RendererHandle.open(pdfFile), 1);
+        this.diskCache = diskCache;
+        this.thumbnailWidth = thumbnailWidth;
+        this.overlaySource = overlaySource;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "PdfThumbnails"));
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The cached thumbnail of a page, or null if it hasn't been rendered.
+     */
+    Bitmap get(int pageIndex) {
+        return cache.get(pageIndex);
+    }
+
+    /**
+     * Render the thumbnail of a page, unless a render for it is already queued.
+     * The listener is called once it is ready.
+     */
+    void request(int pageIndex) {
+        if (closed || pageIndex == running) {
+            return;
+        }
+        if (queued.add(pageIndex)) {
+            queue.addFirst(pageIndex);
+        } else {
+            // Move it to the front
+            queue.removeFirstOccurrence(pageIndex);
+            queue.addFirst(pageIndex);
+        }
+        dispatch();
+    }
+
+    /**
+     * Called when the annotations of a page change. Thumbnails that are cached are
+     * redrawn; the old one stays in the cache until then. Queued renders read the
+     * strokes when they start, so they need nothing, and nothing is snapshotted here.
+     */
+    void invalidate(int pageIndex) {
+        if (pageIndex == running) {
+            // It may already have read the old strokes; render again once it is done
+            runningStale = true;
+        } else if (!queued.contains(pageIndex) && cache.get(pageIndex) != null) {
+            if (visible) {
+                request(pageIndex);
+            } else {
+                stale.add(pageIndex);
+            }
+        }
+    }
+
+    /**
+     * Pause rendering while the thumbnails are hidden. When shown again, thumbnails
+     * whose strokes changed meanwhile are redrawn and queued renders resume.
+     */
+    void setVisible(boolean visible) {
+        if (this.visible == visible) {
+            return;
+        }
+        this.visible = visible;
+        if (visible) {
+            for (int pageIndex : stale) {
+                if (cache.get(pageIndex) != null) {
+                    request(pageIndex);
+                }
+            }
+            stale.clear();
+            dispatch();
+        }
+    }
+
+    int getCacheBytes() {
+        return cache.size();
+    }
+
+    /**
+     * Drop cached thumbnails; they are rendered again from the disk cache when needed.
+     */
+    void trimMemory() {
+        cache.evictAll();
+        stale.clear();
+    }
+
+    void close() {
+        closed = true;
+        executor.shutdownNow();
+        rendererPool.close();
+        queue.clear();
+        queued.clear();
+        stale.clear();
+        cache.evictAll();
+    }
+
+    /**
+     * Start the next queued render if the render thread is idle, snapshotting its strokes now.
+     */
+    private void dispatch() {
+        if (closed || !visible || running != -1 || queue.isEmpty()) {
+            return;
+        }
+        int pageIndex = queue.pollFirst();
+        queued.remove(pageIndex);
+        running = pageIndex;
+        runningStale = false;
+        executor.execute(new ThumbnailTask(pageIndex, overlaySource.getOverlay(pageIndex)));
+    }
+
+    private void onThumbnailRendered(ThumbnailTask task, Bitmap thumbnail) {
+        if (closed) {
+            return;
+        }
+        running = -1;
+        if (thumbnail != null) {
+            cache.put(task.pageIndex, thumbnail);
+            if (listener != null) {
+                listener.onThumbnailReady(task.pageIndex, thumbnail);
+            }
+        }
+        if (runningStale) {
+            runningStale = false;
+            if (visible) {
+                request(task.pageIndex);
+            } else {
+                stale.add(task.pageIndex);
+            }
+        }
+        dispatch();
+    }
+
+    private final class ThumbnailTask implements Runnable {
+        final int pageIndex;
+        final Overlay overlay;
+
+        ThumbnailTask(int pageIndex, Overlay overlay) {
+            this.pageIndex = pageIndex;
+            this.overlay = overlay;
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            PdfPagerAdapter.RendererHandle handle = null;
+            Bitmap thumbnail = null;
+            try {
+                handle = rendererPool.acquire();
+                int pageWidth;
+                int pageHeight;
+                float scale;
+                Bitmap base;
+                boolean fromDisk;
+                try (PdfRenderer.Page page = handle.renderer.openPage(pageIndex)) {
+                    pageWidth = page.getWidth();
+                    pageHeight = page.getHeight();
+                    scale = (float) thumbnailWidth / pageWidth;
+                    int height = Math.max(1, Math.round(pageHeight * scale));
+
+                    base = diskCache.get(pageIndex, scale, thumbnailWidth, height, decodePool);
+                    fromDisk = base != null;
+                    if (base == null) {
+                        base = Bitmap.createBitmap(thumbnailWidth, height, Bitmap.Config.ARGB_8888);
+                        base.eraseColor(android.graphics.Color.WHITE);
+                        page.render(base, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                    }
+                }
+
+                // PdfRenderer only renders into ARGB_8888; the thumbnail itself needs half of that
+                thumbnail = base.copy(Bitmap.Config.RGB_565, true);
+                if (fromDisk) {
+                    base.recycle();
+                } else {
+                    diskCache.put(pageIndex, scale, base, Bitmap::recycle);
+                }
+                if (thumbnail == null) {
+                    throw new IllegalStateException("Could not copy thumbnail");
+                }
+                drawOverlay(new Canvas(thumbnail), overlay, pageWidth, pageHeight, scale);
+            } catch (Exception e) {
+                if (!closed) {
+                    Log.e(TAG, "Error rendering thumbnail " + pageIndex, e);
+                }
+                thumbnail = null;
+            } finally {
+                if (handle != null) {
+                    rendererPool.release(handle);
+                }
+            }
+            Bitmap result = thumbnail;
+            mainHandler.post(() -> onThumbnailRendered(this, result));
+        }
+    }
+
+    /**
+     * Draw annotation strokes onto a thumbnail, mapping ink view coordinates onto the page.
+     */
+    private static void drawOverlay(Canvas canvas, Overlay overlay, int pageWidth, int pageHeight, float scale) {
+        if (overlay == null || overlay.strokes.isEmpty() || overlay.viewWidth <= 0 || overlay.viewHeight <= 0) {
+            return;
+        }
+        // Where the page sat in the ink view
+        float fitScale = Math.min((float) overlay.viewWidth / pageWidth, (float) overlay.viewHeight / pageHeight);
+        float pageLeft = (overlay.viewWidth - pageWidth * fitScale) / 2f;
+        float pageTop = (overlay.viewHeight - pageHeight * fitScale) / 2f;
+        canvas.scale(scale / fitScale, scale / fitScale);
+        canvas.translate(-pageLeft, -pageTop);
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        Path path = new Path();
+        for (InkCanvasView.InkStroke stroke : overlay.strokes) {
+            int count = stroke.getPointCount();
+            if (count == 0) {
+                continue;
+            }
+            // Built here rather than through getPath(), which the main thread may be using
+            path.rewind();
+            path.moveTo(stroke.getX(0), stroke.getY(0));
+            for (int i = 1; i < count; i++) {
+                path.lineTo(stroke.getX(i), stroke.getY(i));
+            }
+            if (count == 1) {
+                path.lineTo(stroke.getX(0), stroke.getY(0));
+            }
+            paint.setColor(stroke.color);
+            paint.setStrokeWidth(stroke.strokeWidth);
+            canvas.drawPath(path, paint);
+        }
+    }
+}
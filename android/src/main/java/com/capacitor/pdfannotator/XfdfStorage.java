@@ -1,23 +1,26 @@
 package com.capacitor.pdfannotator;
 
 import android.content.Context;
-import android.graphics.PointF;
 import android.graphics.RectF;
 import android.util.Log;
+import android.util.Xml;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
@@ -29,16 +32,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
 /**
  * Handles saving and loading ink annotations in XFDF format (ISO 19444-1).
  * XFDF is a standard format for PDF annotations that provides cross-platform
@@ -59,6 +52,9 @@ public class XfdfStorage {
     private static final int XFDF_VERSION = 1;
     private static final String APP_NAME = "capacitor-pdf-annotator";
     private static final String APP_VERSION = "1.4.0";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int COORDINATE_BUFFER_SIZE = 4 * 1024;
 
     // Brush type constants
     public static final int BRUSH_PRESSURE_PEN = 0;
@@ -78,6 +74,13 @@ public class XfdfStorage {
 
     private final Context context;
 
+    /**
+     * Receives strokes one at a time while an XFDF document is being parsed.
+     */
+    public interface OnStrokeParsedListener {
+        void onStrokeParsed(InkCanvasView.InkStroke stroke);
+    }
+
     public XfdfStorage(Context context) {
         this.context = context;
     }
@@ -159,19 +162,26 @@ public class XfdfStorage {
      * Save annotations for a PDF file in XFDF format.
      */
     public boolean saveAnnotations(String pdfPath, Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage) {
+        File annotationFile = new File(getAnnotationsDir(), getAnnotationFileName(pdfPath));
+        // Stream into a temporary file so a failed save never truncates the existing annotations
+        File tempFile = new File(annotationFile.getPath() + ".tmp");
+
         try {
-            String xfdfContent = generateXfdf(pdfPath, strokesByPage);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tempFile), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                writeXfdf(writer, strokesByPage);
+            }
 
-            File annotationFile = new File(getAnnotationsDir(), getAnnotationFileName(pdfPath));
-            FileWriter writer = new FileWriter(annotationFile);
-            writer.write(xfdfContent);
-            writer.close();
+            if (!tempFile.renameTo(annotationFile)) {
+                throw new IOException("Failed to move " + tempFile.getName() + " to " + annotationFile.getName());
+            }
 
             Log.d(TAG, "Saved XFDF annotations to: " + annotationFile.getAbsolutePath());
             return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Error saving XFDF annotations", e);
+            tempFile.delete();
             return false;
         }
     }
@@ -189,17 +199,14 @@ public class XfdfStorage {
             return strokesByPage;
         }
 
-        try {
-            // Read file content
-            StringBuilder content = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new FileReader(annotationFile));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-            reader.close();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(annotationFile), READ_BUFFER_SIZE)) {
+            // Parse straight from the file stream, collecting strokes as they are emitted
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(in, null);
 
-            strokesByPage = parseXfdf(content.toString());
+            Map<Integer, List<InkCanvasView.InkStroke>> parsed = new HashMap<>();
+            parseXfdf(parser, stroke -> addStrokeToPage(parsed, stroke));
+            strokesByPage = parsed;
 
             Log.d(TAG, "Loaded XFDF annotations from: " + annotationFile.getAbsolutePath());
 
@@ -234,7 +241,9 @@ public class XfdfStorage {
      */
     public String exportAnnotationsAsString(String pdfPath, Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage) {
         try {
-            return generateXfdf(pdfPath, strokesByPage);
+            StringWriter writer = new StringWriter();
+            writeXfdf(writer, strokesByPage);
+            return writer.toString();
         } catch (Exception e) {
             Log.e(TAG, "Error exporting XFDF annotations", e);
             return null;
@@ -246,8 +255,10 @@ public class XfdfStorage {
      */
     public boolean importAnnotationsFromString(String pdfPath, String xfdfContent) {
         try {
-            // Validate the XFDF content by parsing it
-            Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage = parseXfdf(xfdfContent);
+            // Validate the XFDF content by parsing it (strokes are discarded as they are emitted)
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(new StringReader(xfdfContent));
+            parseXfdf(parser, stroke -> { });
 
             // Save to file
             File annotationFile = new File(getAnnotationsDir(), getAnnotationFileName(pdfPath));
@@ -265,174 +276,191 @@ public class XfdfStorage {
     }
 
     /**
-     * Generate XFDF XML content from strokes.
+     * Stream XFDF XML content for the given strokes to a writer.
+     * Elements are serialized as they are visited, so neither a DOM nor the
+     * complete document is ever held in memory. Package-private for tests.
      */
-    private String generateXfdf(String pdfPath, Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage)
-            throws ParserConfigurationException, TransformerException {
+    void writeXfdf(Writer out, Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage)
+            throws IOException {
 
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.newDocument();
+        XfdfWriter xml = new XfdfWriter(out);
+        xml.startDocument();
 
-        // Create root element
-        Element xfdfElement = doc.createElementNS(XFDF_NAMESPACE, "xfdf");
-        xfdfElement.setAttribute("xmlns", XFDF_NAMESPACE);
-        xfdfElement.setAttribute("xml:space", "preserve");
-        doc.appendChild(xfdfElement);
+        // Root element
+        xml.startTag("xfdf");
+        xml.attribute("xmlns", XFDF_NAMESPACE);
+        xml.attribute("xml:space", "preserve");
 
-        // Create pdf-info element with version
-        Element pdfInfoElement = doc.createElementNS(XFDF_TRANSITION_NAMESPACE, "pdf-info");
-        pdfInfoElement.setAttribute("xmlns", XFDF_TRANSITION_NAMESPACE);
+        // pdf-info element with version
+        xml.startTag("pdf-info");
+        xml.attribute("xmlns", XFDF_TRANSITION_NAMESPACE);
 
-        Element versionElement = doc.createElement("VersionID");
-        versionElement.setTextContent(String.valueOf(XFDF_VERSION));
-        pdfInfoElement.appendChild(versionElement);
+        xml.startTag("VersionID");
+        xml.text(String.valueOf(XFDF_VERSION));
+        xml.endTag();
 
-        Element appNameElement = doc.createElement("AppName");
-        appNameElement.setTextContent(APP_NAME);
-        pdfInfoElement.appendChild(appNameElement);
+        xml.startTag("AppName");
+        xml.text(APP_NAME);
+        xml.endTag();
 
-        Element appVersionElement = doc.createElement("AppVersion");
-        appVersionElement.setTextContent(APP_VERSION);
-        pdfInfoElement.appendChild(appVersionElement);
+        xml.startTag("AppVersion");
+        xml.text(APP_VERSION);
+        xml.endTag();
 
-        xfdfElement.appendChild(pdfInfoElement);
+        xml.endTag(); // pdf-info
 
-        // Create annots element
-        Element annotsElement = doc.createElement("annots");
-        xfdfElement.appendChild(annotsElement);
+        // Ink annotations for each page
+        xml.startTag("annots");
 
-        // Add ink annotations for each page
         String creationDate = formatPdfDate(new Date());
 
+        // Coordinates of every stroke are formatted into this one reusable buffer
+        CoordinateEncoder encoder = new CoordinateEncoder(COORDINATE_BUFFER_SIZE);
+
         for (Map.Entry<Integer, List<InkCanvasView.InkStroke>> entry : strokesByPage.entrySet()) {
             int pageIndex = entry.getKey();
             List<InkCanvasView.InkStroke> strokes = entry.getValue();
 
             for (InkCanvasView.InkStroke stroke : strokes) {
-                Element inkElement = createInkElement(doc, stroke, pageIndex, creationDate);
-                annotsElement.appendChild(inkElement);
+                writeInkElement(xml, encoder, stroke, pageIndex, creationDate);
             }
         }
 
-        // Transform to string
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(writer));
-
-        return writer.toString();
+        xml.endTag(); // annots
+        xml.endTag(); // xfdf
+        xml.endDocument();
     }
 
     /**
-     * Create an ink element for a stroke.
+     * Write an ink element for a stroke.
      */
-    private Element createInkElement(Document doc, InkCanvasView.InkStroke stroke, int pageIndex, String creationDate) {
-        Element inkElement = doc.createElement("ink");
-
-        // Basic attributes
-        inkElement.setAttribute("page", String.valueOf(pageIndex));
-        inkElement.setAttribute("rect", calculateRect(stroke.points));
-        inkElement.setAttribute("color", colorToHex(stroke.color));
-        inkElement.setAttribute("width", String.valueOf(stroke.strokeWidth));
-
-        // Brush-specific attributes
-        float opacity = getOpacityForBrushType(stroke.brushType);
-        String subject = getSubjectForBrushType(stroke.brushType);
-
-        inkElement.setAttribute("opacity", String.valueOf(opacity));
-        inkElement.setAttribute("subject", subject);
-
-        // Metadata
-        inkElement.setAttribute("creationdate", creationDate);
-        inkElement.setAttribute("name", generateAnnotationId());
-
-        // Create inklist element
-        Element inklistElement = doc.createElement("inklist");
-        inkElement.appendChild(inklistElement);
-
-        // Create gesture element with points
-        Element gestureElement = doc.createElement("gesture");
-        gestureElement.setTextContent(pointsToGestureString(stroke.points));
-        inklistElement.appendChild(gestureElement);
+    private void writeInkElement(XfdfWriter xml, CoordinateEncoder encoder, InkCanvasView.InkStroke stroke,
+                                 int pageIndex, String creationDate) throws IOException {
+        xml.startTag("ink");
+
+        // Attributes in alphabetical order, as the DOM serializer wrote them
+        xml.attribute("color", colorToHex(stroke.color));
+        xml.attribute("creationdate", creationDate);
+        xml.attribute("name", generateAnnotationId());
+        xml.attribute("opacity", String.valueOf(getOpacityForBrushType(stroke.brushType)));
+        xml.attribute("page", String.valueOf(pageIndex));
+        calculateRect(stroke, encoder);
+        xml.attribute("rect", encoder.buffer(), 0, encoder.length());
+        xml.attribute("subject", getSubjectForBrushType(stroke.brushType));
+        xml.attribute("width", String.valueOf(stroke.strokeWidth));
+
+        // inklist element with the gesture points
+        xml.startTag("inklist");
+        xml.startTag("gesture");
+        pointsToGestureString(stroke, encoder);
+        xml.text(encoder.buffer(), 0, encoder.length());
+        xml.endTag(); // gesture
+        xml.endTag(); // inklist
 
         // Empty popup element (required by some readers)
-        Element popupElement = doc.createElement("popup");
-        inkElement.appendChild(popupElement);
+        xml.startTag("popup");
+        xml.endTag();
 
-        return inkElement;
+        xml.endTag(); // ink
     }
 
     /**
-     * Parse XFDF XML content into strokes.
+     * Parse XFDF XML content with a pull parser, emitting each ink annotation
+     * as soon as its element has been read. Only the stroke currently being
+     * parsed is held by the parser, so memory does not grow with document size.
+     * Package-private for tests.
      */
-    private Map<Integer, List<InkCanvasView.InkStroke>> parseXfdf(String xfdfContent)
-            throws ParserConfigurationException, IOException, SAXException {
-
-        Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage = new HashMap<>();
-
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new InputSource(new StringReader(xfdfContent)));
-
-        // Get all ink elements
-        NodeList inkElements = doc.getElementsByTagName("ink");
+    void parseXfdf(XmlPullParser parser, OnStrokeParsedListener listener)
+            throws XmlPullParserException, IOException {
+
+        InkCanvasView.InkStroke stroke = null;
+        GestureParser gestureParser = new GestureParser();
+        int[] textBounds = new int[2];
+
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String name = parser.getName();
+                if ("ink".equals(name)) {
+                    stroke = createStrokeFromInkElement(parser);
+                } else if ("gesture".equals(name) && stroke != null) {
+                    // Parse gesture points
+                    int count = readGesture(parser, gestureParser, textBounds);
+                    stroke.addPoints(gestureParser.coords(), 0, count);
+                }
+            } else if (eventType == XmlPullParser.END_TAG && "ink".equals(parser.getName()) && stroke != null) {
+                listener.onStrokeParsed(stroke);
+                stroke = null;
+            }
+            eventType = parser.next();
+        }
+    }
 
-        for (int i = 0; i < inkElements.getLength(); i++) {
-            Element inkElement = (Element) inkElements.item(i);
+    /**
+     * Read the text of the gesture element the parser is positioned on and parse it.
+     * The character data is scanned in place, without creating a String for it.
+     *
+     * @return number of points parsed into the gesture parser
+     */
+    private int readGesture(XmlPullParser parser, GestureParser gestureParser, int[] textBounds)
+            throws XmlPullParserException, IOException {
+        gestureParser.resetText();
+
+        int eventType = parser.next();
+        while (eventType != XmlPullParser.END_TAG) {
+            if (eventType == XmlPullParser.TEXT) {
+                char[] chars = parser.getTextCharacters(textBounds);
+                gestureParser.appendText(chars, textBounds[0], textBounds[1]);
+            } else {
+                throw new XmlPullParserException("Unexpected content in gesture element", parser, null);
+            }
+            eventType = parser.next();
+        }
 
-            // Parse page index
-            int pageIndex = Integer.parseInt(inkElement.getAttribute("page"));
+        return gestureParser.parseText();
+    }
 
-            // Parse color
-            String colorHex = inkElement.getAttribute("color");
-            int color = hexToColor(colorHex);
+    /**
+     * Create an empty stroke from the attributes of the ink element the parser is positioned on.
+     */
+    private InkCanvasView.InkStroke createStrokeFromInkElement(XmlPullParser parser) {
+        // Parse page index
+        int pageIndex = Integer.parseInt(getAttribute(parser, "page"));
 
-            // Parse stroke width
-            float strokeWidth = Float.parseFloat(inkElement.getAttribute("width"));
+        // Parse color
+        String colorHex = getAttribute(parser, "color");
+        int color = hexToColor(colorHex);
 
-            // Parse brush type from subject and opacity
-            String subject = inkElement.getAttribute("subject");
-            String opacityStr = inkElement.getAttribute("opacity");
-            float opacity = opacityStr.isEmpty() ? 1.0f : Float.parseFloat(opacityStr);
-            int brushType = getBrushTypeFromSubjectAndOpacity(subject, opacity);
+        // Parse stroke width
+        float strokeWidth = Float.parseFloat(getAttribute(parser, "width"));
 
-            // Create stroke
-            InkCanvasView.InkStroke stroke = new InkCanvasView.InkStroke(pageIndex, color, strokeWidth, brushType);
+        // Parse brush type from subject and opacity
+        String subject = getAttribute(parser, "subject");
+        String opacityStr = getAttribute(parser, "opacity");
+        float opacity = opacityStr.isEmpty() ? 1.0f : Float.parseFloat(opacityStr);
+        int brushType = getBrushTypeFromSubjectAndOpacity(subject, opacity);
 
-            // Parse gesture points
-            NodeList gestureElements = inkElement.getElementsByTagName("gesture");
-            for (int j = 0; j < gestureElements.getLength(); j++) {
-                Element gestureElement = (Element) gestureElements.item(j);
-                String gestureStr = gestureElement.getTextContent();
-                List<PointF> points = parseGestureString(gestureStr);
-                stroke.points.addAll(points);
-            }
+        return new InkCanvasView.InkStroke(pageIndex, color, strokeWidth, brushType);
+    }
 
-            // Rebuild the path from points
-            if (!stroke.points.isEmpty()) {
-                PointF first = stroke.points.get(0);
-                stroke.path.moveTo(first.x, first.y);
-                for (int k = 1; k < stroke.points.size(); k++) {
-                    PointF point = stroke.points.get(k);
-                    stroke.path.lineTo(point.x, point.y);
-                }
-            }
+    /**
+     * Get an attribute of the current element, or an empty string if it is missing.
+     */
+    private String getAttribute(XmlPullParser parser, String name) {
+        String value = parser.getAttributeValue(null, name);
+        return value != null ? value : "";
+    }
 
-            // Add to page map
-            if (!strokesByPage.containsKey(pageIndex)) {
-                strokesByPage.put(pageIndex, new ArrayList<>());
-            }
-            strokesByPage.get(pageIndex).add(stroke);
+    /**
+     * Add a parsed stroke to its page list.
+     */
+    private void addStrokeToPage(Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage, InkCanvasView.InkStroke stroke) {
+        List<InkCanvasView.InkStroke> pageStrokes = strokesByPage.get(stroke.pageIndex);
+        if (pageStrokes == null) {
+            pageStrokes = new ArrayList<>();
+            strokesByPage.put(stroke.pageIndex, pageStrokes);
         }
-
-        return strokesByPage;
+        pageStrokes.add(stroke);
     }
 
     /**
@@ -477,12 +505,15 @@ public class XfdfStorage {
     }
 
     /**
-     * Calculate bounding rect from points.
-     * Returns "left,bottom,right,top" format (PDF coordinate system).
+     * Calculate bounding rect from a stroke's points.
+     * Writes "left,bottom,right,top" format (PDF coordinate system) into the encoder.
      */
-    private String calculateRect(List<PointF> points) {
-        if (points.isEmpty()) {
-            return "0,0,0,0";
+    private void calculateRect(InkCanvasView.InkStroke stroke, CoordinateEncoder encoder) {
+        encoder.reset();
+        int count = stroke.getPointCount();
+        if (count == 0) {
+            encoder.append("0,0,0,0");
+            return;
         }
 
         float minX = Float.MAX_VALUE;
@@ -490,11 +521,12 @@ public class XfdfStorage {
         float maxX = Float.MIN_VALUE;
         float maxY = Float.MIN_VALUE;
 
-        for (PointF point : points) {
-            minX = Math.min(minX, point.x);
-            minY = Math.min(minY, point.y);
-            maxX = Math.max(maxX, point.x);
-            maxY = Math.max(maxY, point.y);
+        float[] coords = stroke.getCoords();
+        for (int i = 0; i < 2 * count; i += 2) {
+            minX = Math.min(minX, coords[i]);
+            minY = Math.min(minY, coords[i + 1]);
+            maxX = Math.max(maxX, coords[i]);
+            maxY = Math.max(maxY, coords[i + 1]);
         }
 
         // Add small padding
@@ -504,49 +536,25 @@ public class XfdfStorage {
         maxX += padding;
         maxY += padding;
 
-        return String.format(Locale.US, "%.2f,%.2f,%.2f,%.2f", minX, minY, maxX, maxY);
+        encoder.appendFixed2(minX).append(',')
+                .appendFixed2(minY).append(',')
+                .appendFixed2(maxX).append(',')
+                .appendFixed2(maxY);
     }
 
     /**
-     * Convert points list to gesture string (x1,y1;x2,y2;...).
+     * Write a stroke's points as a gesture string (x1,y1;x2,y2;...) into the encoder.
      */
-    private String pointsToGestureString(List<PointF> points) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < points.size(); i++) {
+    private void pointsToGestureString(InkCanvasView.InkStroke stroke, CoordinateEncoder encoder) {
+        encoder.reset();
+        float[] coords = stroke.getCoords();
+        int count = stroke.getPointCount();
+        for (int i = 0; i < count; i++) {
             if (i > 0) {
-                sb.append(";");
+                encoder.append(';');
             }
-            PointF point = points.get(i);
-            sb.append(String.format(Locale.US, "%.2f,%.2f", point.x, point.y));
+            encoder.appendFixed2(coords[2 * i]).append(',').appendFixed2(coords[2 * i + 1]);
         }
-        return sb.toString();
-    }
-
-    /**
-     * Parse gesture string to points list.
-     */
-    private List<PointF> parseGestureString(String gestureStr) {
-        List<PointF> points = new ArrayList<>();
-
-        if (gestureStr == null || gestureStr.isEmpty()) {
-            return points;
-        }
-
-        String[] pairs = gestureStr.split(";");
-        for (String pair : pairs) {
-            String[] coords = pair.split(",");
-            if (coords.length >= 2) {
-                try {
-                    float x = Float.parseFloat(coords[0].trim());
-                    float y = Float.parseFloat(coords[1].trim());
-                    points.add(new PointF(x, y));
-                } catch (NumberFormatException e) {
-                    Log.w(TAG, "Invalid point in gesture: " + pair);
-                }
-            }
-        }
-
-        return points;
     }
 
     /**
@@ -0,0 +1,202 @@
+package com.capacitor.pdfannotator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming XML serializer used to write XFDF documents.
+ *
+ * Produces the same bytes the DOM and identity Transformer used to: an XML
+ * declaration with {@code standalone="no"} on its own line, then the document
+ * without indentation, since the root declares {@code xml:space="preserve"} and
+ * the Transformer doesn't indent inside it. Elements without content are
+ * self-closed and the output ends with a newline. Attributes are written in call
+ * order, so callers write them in the order the DOM serialized them.
+ *
+ * Nothing is buffered beyond the open element stack; all output goes straight to
+ * the underlying writer, which callers are expected to buffer.
+ */
+final class XfdfWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final Writer out;
+
+    // Stack of open element names
+    private String[] openElements = new String[8];
+    private int depth = 0;
+
+    // True while the start tag of the innermost element is still open ("<name attr=...")
+    private boolean startTagOpen = false;
+
+    XfdfWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Write the XML declaration.
+     */
+    void startDocument() throws IOException {
+        out.write(XML_DECLARATION);
+        out.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Open a new element. Attributes may be added until content is written.
+     */
+    void startTag(String name) throws IOException {
+        closeStartTagIfOpen();
+        out.write('<');
+        out.write(name);
+
+        if (depth == openElements.length) {
+            openElements = Arrays.copyOf(openElements, depth * 2);
+        }
+        openElements[depth++] = name;
+        startTagOpen = true;
+    }
+
+    /**
+     * Add an attribute to the element opened by the last {@link #startTag(String)}.
+     */
+    void attribute(String name, String value) throws IOException {
+        if (!startTagOpen) {
+            throw new IllegalStateException("Attribute '" + name + "' written outside of a start tag");
+        }
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        writeEscaped(value, true);
+        out.write('"');
+    }
+
+    /**
+     * Add an attribute whose value is taken from a character buffer.
+     */
+    void attribute(String name, char[] value, int offset, int length) throws IOException {
+        if (!startTagOpen) {
+            throw new IllegalStateException("Attribute '" + name + "' written outside of a start tag");
+        }
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        writeEscaped(value, offset, length, true);
+        out.write('"');
+    }
+
+    /**
+     * Write escaped text content taken from a character buffer. Empty text adds
+     * nothing, so the element can still be self-closed.
+     */
+    void text(char[] chars, int offset, int length) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Text written outside of an element");
+        }
+        if (length == 0) {
+            return;
+        }
+        closeStartTagIfOpen();
+        writeEscaped(chars, offset, length, false);
+    }
+
+    /**
+     * Write escaped text content inside the current element.
+     */
+    void text(String text) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Text written outside of an element");
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        closeStartTagIfOpen();
+        writeEscaped(text, false);
+    }
+
+    /**
+     * Close the innermost open element.
+     */
+    void endTag() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No open element to close");
+        }
+        depth--;
+        String name = openElements[depth];
+        openElements[depth] = null;
+
+        if (startTagOpen) {
+            out.write("/>");
+            startTagOpen = false;
+        } else {
+            out.write("</");
+            out.write(name);
+            out.write('>');
+        }
+    }
+
+    /**
+     * Close any remaining elements, terminate the last line and flush the writer.
+     */
+    void endDocument() throws IOException {
+        while (depth > 0) {
+            endTag();
+        }
+        out.write(LINE_SEPARATOR);
+        out.flush();
+    }
+
+    private void closeStartTagIfOpen() throws IOException {
+        if (startTagOpen) {
+            out.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void writeEscaped(String value, boolean inAttribute) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String replacement = escape(value.charAt(i), inAttribute);
+            if (replacement != null) {
+                out.write(value, start, i - start);
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, length - start);
+    }
+
+    private void writeEscaped(char[] chars, int offset, int length, boolean inAttribute) throws IOException {
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            String replacement = escape(chars[i], inAttribute);
+            if (replacement != null) {
+                out.write(chars, start, i - start);
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        out.write(chars, start, end - start);
+    }
+
+    /**
+     * Get the entity for a character that must be escaped, or null if it can be written as is.
+     */
+    private static String escape(char c, boolean inAttribute) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return inAttribute ? "&quot;" : null;
+            default:
+                return null;
+        }
+    }
+}
@@ -2,15 +2,17 @@ package com.capacitor.pdfannotator
 
 import android.annotation.SuppressLint
 import android.content.Context
+import android.graphics.Bitmap
 import android.graphics.Canvas
 import android.graphics.Color
 import android.graphics.Matrix
 import android.graphics.Paint
-import android.graphics.PointF
 import android.graphics.PorterDuff
 import android.graphics.PorterDuffXfermode
+import android.graphics.Rect
 import android.graphics.RectF
 import android.os.Build
+import android.os.SystemClock
 import android.util.AttributeSet
 import android.util.Log
 import android.view.MotionEvent
@@ -30,8 +32,14 @@ import androidx.ink.geometry.MutableParallelogram
 import androidx.ink.geometry.MutableSegment
 import androidx.ink.geometry.MutableVec
 import androidx.ink.rendering.android.canvas.CanvasStrokeRenderer
+import androidx.ink.strokes.MutableStrokeInputBatch
 import androidx.ink.strokes.Stroke
+import androidx.ink.strokes.StrokeInput
 import androidx.input.motionprediction.MotionEventPredictor
+import kotlin.math.ceil
+import kotlin.math.floor
+import kotlin.math.hypot
+import kotlin.math.roundToInt
 
 /**
  * High-performance ink view using AndroidX Ink API 1.0.0.
@@ -46,11 +54,29 @@ class AndroidXInkView @JvmOverloads constructor(
     companion object {
         private const val TAG = "AndroidXInkView"
 
+        // Precision eraser moves are cut in batches at most this often, since every cut
+        // rebuilds the remaining pieces of the strokes under the eraser
+        private const val PRECISION_ERASE_INTERVAL_MS = 48L
+
         // Brush type constants for Java compatibility
         const val BRUSH_PRESSURE_PEN = 0
         const val BRUSH_MARKER = 1
         const val BRUSH_HIGHLIGHTER = 2
         const val BRUSH_DASHED_LINE = 3
+
+        // Opacity highlighters are drawn with
+        const val HIGHLIGHTER_OPACITY = 0.5f
+
+        /**
+         * Stock brush family of a brush type ID
+         */
+        @JvmStatic
+        fun brushFamilyFor(typeId: Int): BrushFamily = when (BrushType.fromId(typeId)) {
+            BrushType.PRESSURE_PEN -> StockBrushes.pressurePen()
+            BrushType.MARKER -> StockBrushes.marker()
+            BrushType.HIGHLIGHTER -> StockBrushes.highlighter()
+            BrushType.DASHED_LINE -> StockBrushes.dashedLine()
+        }
     }
 
     /**
@@ -72,28 +98,16 @@ class AndroidXInkView @JvmOverloads constructor(
     private val canvasStrokeRenderer: CanvasStrokeRenderer = CanvasStrokeRenderer.create()
     private val finishedStrokesView: FinishedStrokesView
 
-    // Stroke storage
-    private val finishedStrokes = mutableListOf<Stroke>()
-    private val strokeBrushTypes = mutableMapOf<Stroke, Int>() // Track brush type for each stroke
-
-    // Action-based undo/redo system (supports both drawing and erasing)
-    sealed class UndoableAction {
-        data class AddStroke(val stroke: Stroke, val brushType: Int) : UndoableAction()
-        data class AddLegacyStroke(val stroke: InkCanvasView.InkStroke) : UndoableAction()
-        data class EraseStrokes(
-            val erasedStrokes: List<Stroke>,
-            val erasedBrushTypes: Map<Stroke, Int>,
-            val erasedLegacyStrokes: List<InkCanvasView.InkStroke>
-        ) : UndoableAction()
-    }
-
-    private val undoStack = mutableListOf<UndoableAction>()
-    private val redoStack = mutableListOf<UndoableAction>()
+    // Strokes and undo history of the page this view currently shows, null while unbound
+    private var model: PageInkModel? = null
 
     // Track strokes erased in current erase gesture (to batch them into one undo action)
     private var currentEraseAction: MutableList<Stroke> = mutableListOf()
     private var currentEraseBrushTypes: MutableMap<Stroke, Int> = mutableMapOf()
     private var currentEraseLegacyStrokes: MutableList<InkCanvasView.InkStroke> = mutableListOf()
+    // Pieces the precision eraser left behind in the current gesture
+    private val currentEraseAddedStrokes = LinkedHashMap<Stroke, Int>()
+    private val currentEraseAddedLegacyStrokes = mutableListOf<InkCanvasView.InkStroke>()
 
     // Current brush settings
     private var currentBrush: Brush
@@ -108,8 +122,23 @@ class AndroidXInkView @JvmOverloads constructor(
 
     // Eraser mode
     private var isEraserMode = false
+    // Cut strokes where the eraser passes instead of removing them whole
+    private var isPrecisionEraser = false
     private var previousErasePoint: MutableVec? = null
     private val eraserPadding = 50f  // Hit-testing padding for eraser
+    private val eraseDirtyRect = RectF()
+    // Hit-test candidates from the page's stroke index, reused across eraser moves
+    private val eraseCandidates = mutableListOf<Stroke>()
+    private val legacyEraseCandidates = mutableListOf<InkCanvasView.InkStroke>()
+    // Eraser circles of the precision eraser not cut yet, and the area they cover
+    private var eraseCircles = FloatArray(16)
+    private var eraseCircleCount = 0
+    private val pendingEraseBounds = RectF()
+    private var lastPrecisionEraseTime = 0L
+    private val precisionEraseRunnable = Runnable { flushPrecisionErase() }
+    // Scratch buffers of the precision eraser
+    private var eraseCoords = FloatArray(256)
+    private val eraseInput = StrokeInput()
 
     // Stylus tool type tracking for auto-eraser
     private var wasEraserModeBeforeStylus: Boolean? = null
@@ -138,7 +167,11 @@ class AndroidXInkView @JvmOverloads constructor(
             }
         }
 
-    var pageIndex: Int = 0
+    /**
+     * Page of the bound model, or -1 while no page is bound.
+     */
+    val pageIndex: Int
+        get() = model?.pageIndex ?: -1
 
     // Callbacks
     private var onInkChangeListener: (() -> Unit)? = null
@@ -190,12 +223,7 @@ class AndroidXInkView @JvmOverloads constructor(
         val colorLong = Color.pack(color)
 
         // Select brush family based on brush type
-        val brushFamily: BrushFamily = when (brushType) {
-            BrushType.PRESSURE_PEN -> StockBrushes.pressurePen()
-            BrushType.MARKER -> StockBrushes.marker()
-            BrushType.HIGHLIGHTER -> StockBrushes.highlighter()
-            BrushType.DASHED_LINE -> StockBrushes.dashedLine()
-        }
+        val brushFamily: BrushFamily = brushFamilyFor(brushType.id)
 
         // For highlighter, make color semi-transparent
         val finalColor = if (brushType == BrushType.HIGHLIGHTER) {
@@ -203,7 +231,7 @@ class AndroidXInkView @JvmOverloads constructor(
                 Color.red(color) / 255f,
                 Color.green(color) / 255f,
                 Color.blue(color) / 255f,
-                0.5f // 50% opacity for highlighter
+                HIGHLIGHTER_OPACITY
             )
         } else {
             colorLong
@@ -217,23 +245,76 @@ class AndroidXInkView @JvmOverloads constructor(
         )
     }
 
+    /**
+     * Show and edit the strokes of another page. Gestures in progress are dropped.
+     */
+    fun bindModel(model: PageInkModel) {
+        if (model === this.model) return
+        cancelAllStrokes()
+        finalizeEraseSession()
+        previousErasePoint = null
+        this.model?.releasePaths()
+        this.model = model
+        finishedStrokesView.invalidateLayer()
+    }
+
+    /**
+     * Stop showing any page, e.g. when the view is recycled. Gestures in progress are dropped.
+     */
+    fun unbindModel() {
+        val model = this.model ?: return
+        cancelAllStrokes()
+        finalizeEraseSession()
+        previousErasePoint = null
+        model.releasePaths()
+        this.model = null
+        finishedStrokesView.releaseLayer()
+        finishedStrokesView.invalidateLayer()
+    }
+
+    /**
+     * Free the offscreen stroke layer, e.g. under memory pressure. It is allocated
+     * and redrawn the next time the view draws while on screen.
+     */
+    fun releaseStrokeLayer() {
+        finishedStrokesView.releaseLayer()
+        finishedStrokesView.invalidate()
+    }
+
+    /**
+     * Bytes held by the offscreen stroke layer.
+     */
+    val strokeLayerBytes: Int
+        get() = finishedStrokesView.layerBytes
+
+    /**
+     * Redraw after the bound model was changed from outside the view.
+     */
+    fun onModelChanged() {
+        finishedStrokesView.invalidateLayer()
+    }
+
+    /**
+     * Redraw once a zoom gesture settles, switching between the cached stroke layer
+     * at 1x and vector drawing when zoomed in.
+     */
+    fun onZoomSettled() {
+        finishedStrokesView.invalidate()
+    }
+
     @UiThread
     override fun onStrokesFinished(strokes: Map<InProgressStrokeId, Stroke>) {
         Log.d(TAG, "🖊️ AndroidX Ink: ${strokes.size} stroke(s) finished with pressure sensitivity")
-        for ((_, stroke) in strokes) {
-            finishedStrokes.add(stroke)
-            val currentBrushTypeId = brushType.id
-            strokeBrushTypes[stroke] = currentBrushTypeId
-            // Add to undo stack and clear redo stack
-            undoStack.add(UndoableAction.AddStroke(stroke, currentBrushTypeId))
-            redoStack.clear()
-        }
-
         // Remove finished strokes from InProgressStrokesView
         inProgressStrokesView.removeFinishedStrokes(strokes.keys)
 
+        val model = model ?: return
+        for ((_, stroke) in strokes) {
+            model.addStroke(stroke, brushType.id)
+        }
+
         onInkChangeListener?.invoke()
-        finishedStrokesView.invalidate()
+        finishedStrokesView.addToLayer(strokes.values)
     }
 
     fun setInkColor(@ColorInt color: Int) {
@@ -281,6 +362,16 @@ class AndroidXInkView @JvmOverloads constructor(
      */
     fun isEraserModeActive(): Boolean = isEraserMode
 
+    /**
+     * Set whether the eraser cuts strokes where it passes rather than removing whole strokes
+     */
+    fun setPrecisionEraser(enabled: Boolean) {
+        isPrecisionEraser = enabled
+        Log.d(TAG, "Precision eraser: $enabled")
+    }
+
+    fun isPrecisionEraserActive(): Boolean = isPrecisionEraser
+
     /**
      * Reset stylus eraser state when user manually changes modes.
      * This prevents the auto-eraser feature from interfering with manual mode changes.
@@ -297,9 +388,16 @@ class AndroidXInkView @JvmOverloads constructor(
      */
     @SuppressLint("RestrictedApi")
     private fun handleErase(x: Float, y: Float): Boolean {
+        val model = model ?: return true
         val prev = previousErasePoint
         previousErasePoint = MutableVec(x, y)
 
+        if (isPrecisionEraser) {
+            // A touch without movement cuts too, so dots and short strokes can be trimmed
+            queuePrecisionErase(prev?.x ?: x, prev?.y ?: y, x, y)
+            return true
+        }
+
         if (prev == null) return true
 
         // Create segment from previous to current point (Cahier approach)
@@ -308,9 +406,18 @@ class AndroidXInkView @JvmOverloads constructor(
             .populateFromSegmentAndPadding(segment, eraserPadding)
 
         var removedCount = 0
-
-        // Find intersecting AndroidX strokes using Ink geometry
-        val strokesToRemove = finishedStrokes.filter { stroke ->
+        val dirty = eraseDirtyRect
+        dirty.setEmpty()
+
+        // Find intersecting AndroidX strokes using Ink geometry, testing only the
+        // strokes the index finds near the swept segment
+        eraseCandidates.clear()
+        model.queryStrokes(
+            minOf(prev.x, x) - eraserPadding, minOf(prev.y, y) - eraserPadding,
+            maxOf(prev.x, x) + eraserPadding, maxOf(prev.y, y) + eraserPadding,
+            eraseCandidates
+        )
+        val strokesToRemove = eraseCandidates.filter { stroke ->
             stroke.shape.intersects(parallelogram, AffineTransform.IDENTITY)
         }
 
@@ -318,11 +425,12 @@ class AndroidXInkView @JvmOverloads constructor(
             // Track erased strokes for undo
             for (stroke in strokesToRemove) {
                 currentEraseAction.add(stroke)
-                strokeBrushTypes[stroke]?.let { currentEraseBrushTypes[stroke] = it }
-                strokeBrushTypes.remove(stroke)
+                currentEraseBrushTypes[stroke] = model.getBrushType(stroke)
+                stroke.shape.computeBoundingBox()?.let { box ->
+                    dirty.union(box.xMin, box.yMin, box.xMax, box.yMax)
+                }
             }
-            finishedStrokes.removeAll(strokesToRemove.toSet())
-            finishedStrokesView.setStrokes(finishedStrokes)
+            model.removeStrokes(strokesToRemove)
             removedCount += strokesToRemove.size
         }
 
@@ -332,21 +440,31 @@ class AndroidXInkView @JvmOverloads constructor(
             x + eraserPadding, y + eraserPadding
         )
 
-        val legacyToRemove = finishedStrokesView.getLegacyStrokes().filter { stroke ->
-            val bounds = RectF()
-            stroke.path.computeBounds(bounds, true)
-            RectF.intersects(bounds, eraserRect) || pathIntersectsPoint(stroke.path, x, y, eraserPadding)
+        val bounds = RectF()
+        legacyEraseCandidates.clear()
+        model.queryLegacyStrokes(eraserRect.left, eraserRect.top, eraserRect.right, eraserRect.bottom,
+            legacyEraseCandidates)
+        // Exact distance from the eraser to each candidate's polyline
+        val legacyToRemove = legacyEraseCandidates.filter { stroke ->
+            stroke.isWithinDistance(x, y, eraserPadding)
         }
 
         if (legacyToRemove.isNotEmpty()) {
             // Track erased legacy strokes for undo
             currentEraseLegacyStrokes.addAll(legacyToRemove)
-            finishedStrokesView.removeLegacyStrokes(legacyToRemove)
+            for (stroke in legacyToRemove) {
+                stroke.computeBounds(bounds)
+                bounds.inset(-stroke.strokeWidth, -stroke.strokeWidth)
+                dirty.union(bounds)
+            }
+            model.removeLegacyStrokes(legacyToRemove)
             removedCount += legacyToRemove.size
         }
 
         if (removedCount > 0) {
-            finishedStrokesView.invalidate()
+            // Leave room for anti-aliased edges
+            dirty.inset(-2f, -2f)
+            finishedStrokesView.invalidateLayer(dirty)
             onInkChangeListener?.invoke()
             Log.d(TAG, "Eraser removed $removedCount stroke(s)")
         }
@@ -355,35 +473,144 @@ class AndroidXInkView @JvmOverloads constructor(
     }
 
     /**
-     * Check if a path intersects with a point within a given radius
+     * Queue the eraser sweep from (x0, y0) to (x1, y1) for cutting. Sweeps are cut
+     * together at most every [PRECISION_ERASE_INTERVAL_MS], and when the gesture ends.
      */
-    private fun pathIntersectsPoint(path: android.graphics.Path, x: Float, y: Float, radius: Float): Boolean {
-        val bounds = RectF()
-        path.computeBounds(bounds, true)
+    private fun queuePrecisionErase(x0: Float, y0: Float, x1: Float, y1: Float) {
+        // Eraser circles along the move, close enough that together they cover the swept area
+        val steps = maxOf(1, ceil(hypot(x1 - x0, y1 - y0) / (eraserPadding / 2)).toInt())
+        val needed = 2 * (eraseCircleCount + steps + 1)
+        if (eraseCircles.size < needed) {
+            eraseCircles = eraseCircles.copyOf(maxOf(needed, 2 * eraseCircles.size))
+        }
+        val circles = eraseCircles
+        for (i in 0..steps) {
+            val t = i.toFloat() / steps
+            circles[2 * eraseCircleCount] = x0 + (x1 - x0) * t
+            circles[2 * eraseCircleCount + 1] = y0 + (y1 - y0) * t
+            eraseCircleCount++
+        }
+        pendingEraseBounds.union(minOf(x0, x1) - eraserPadding, minOf(y0, y1) - eraserPadding,
+            maxOf(x0, x1) + eraserPadding, maxOf(y0, y1) + eraserPadding)
 
-        // Quick bounds check first
-        if (!bounds.intersects(x - radius, y - radius, x + radius, y + radius)) {
-            return false
+        val now = SystemClock.uptimeMillis()
+        if (now - lastPrecisionEraseTime >= PRECISION_ERASE_INTERVAL_MS) {
+            flushPrecisionErase()
+        } else {
+            // Cut the rest once the interval is over, even if the eraser stops moving
+            removeCallbacks(precisionEraseRunnable)
+            postDelayed(precisionEraseRunnable, lastPrecisionEraseTime + PRECISION_ERASE_INTERVAL_MS - now)
         }
+    }
 
-        // Sample points along the path using PathMeasure for more accurate hit testing
-        val pathMeasure = android.graphics.PathMeasure(path, false)
-        val coords = floatArrayOf(0f, 0f)
-        val length = pathMeasure.length
-        val step = 5f // Sample every 5 pixels
+    /**
+     * Cut every stroke the queued eraser sweeps passed over, replacing it in place
+     * with the pieces outside the eraser. Ink strokes are cut at their inputs and
+     * rebuilt with the same brush; loaded strokes are cut exactly at the eraser edge.
+     */
+    private fun flushPrecisionErase() {
+        removeCallbacks(precisionEraseRunnable)
+        val circleCount = eraseCircleCount
+        if (circleCount == 0) return
+        eraseCircleCount = 0
+        lastPrecisionEraseTime = SystemClock.uptimeMillis()
+        val circles = eraseCircles
+        val left = pendingEraseBounds.left
+        val top = pendingEraseBounds.top
+        val right = pendingEraseBounds.right
+        val bottom = pendingEraseBounds.bottom
+        pendingEraseBounds.setEmpty()
+        val model = model ?: return
+
+        var cutCount = 0
+        val dirty = eraseDirtyRect
+        dirty.setEmpty()
+
+        eraseCandidates.clear()
+        model.queryStrokes(left, top, right, bottom, eraseCandidates)
+        for (stroke in eraseCandidates) {
+            val inputs = stroke.inputs
+            val count = inputs.size
+            if (eraseCoords.size < 2 * count) {
+                eraseCoords = FloatArray(2 * count)
+            }
+            val coords = eraseCoords
+            for (i in 0 until count) {
+                inputs.populate(i, eraseInput)
+                coords[2 * i] = eraseInput.x
+                coords[2 * i + 1] = eraseInput.y
+            }
+            // Widen the eraser by half the brush so cut ends don't reach into it
+            val ranges = StrokeSplitter.keptRanges(coords, count, circles, circleCount,
+                eraserPadding + stroke.brush.size / 2) ?: continue
+
+            val pieces = try {
+                splitStroke(stroke, ranges)
+            } catch (e: IllegalArgumentException) {
+                Log.w(TAG, "Could not split stroke: ${e.message}")
+                continue
+            }
+            val brushType = model.getBrushType(stroke)
+            // Pieces cut again in the same gesture never existed as far as undo is concerned
+            if (currentEraseAddedStrokes.remove(stroke) == null) {
+                currentEraseAction.add(stroke)
+                currentEraseBrushTypes[stroke] = brushType
+            }
+            val added = pieces.associateWith { brushType }
+            model.replaceStroke(stroke, added)
+            currentEraseAddedStrokes.putAll(added)
+            stroke.shape.computeBoundingBox()?.let { box ->
+                dirty.union(box.xMin, box.yMin, box.xMax, box.yMax)
+            }
+            cutCount++
+        }
 
-        var distance = 0f
-        while (distance <= length) {
-            pathMeasure.getPosTan(distance, coords, null)
-            val dx = coords[0] - x
-            val dy = coords[1] - y
-            if (dx * dx + dy * dy <= radius * radius) {
-                return true
+        legacyEraseCandidates.clear()
+        model.queryLegacyStrokes(left, top, right, bottom, legacyEraseCandidates)
+        val bounds = RectF()
+        for (stroke in legacyEraseCandidates) {
+            val ranges = StrokeSplitter.keptRanges(stroke.coords, stroke.pointCount, circles, circleCount,
+                eraserPadding + stroke.strokeWidth / 2) ?: continue
+
+            val pieces = (ranges.indices step 2).map { stroke.slice(ranges[it], ranges[it + 1]) }
+            if (!currentEraseAddedLegacyStrokes.remove(stroke)) {
+                currentEraseLegacyStrokes.add(stroke)
             }
-            distance += step
+            model.replaceLegacyStroke(stroke, pieces)
+            currentEraseAddedLegacyStrokes.addAll(pieces)
+            stroke.computeBounds(bounds)
+            bounds.inset(-stroke.strokeWidth, -stroke.strokeWidth)
+            dirty.union(bounds)
+            cutCount++
         }
 
-        return false
+        if (cutCount > 0) {
+            // Leave room for anti-aliased edges
+            dirty.inset(-2f, -2f)
+            finishedStrokesView.invalidateLayer(dirty)
+            onInkChangeListener?.invoke()
+        }
+    }
+
+    /**
+     * New strokes with the original brush from the inputs inside each kept range.
+     * Ranges holding fewer than two inputs are dropped.
+     */
+    private fun splitStroke(stroke: Stroke, ranges: FloatArray): List<Stroke> {
+        val inputs = stroke.inputs
+        val pieces = mutableListOf<Stroke>()
+        for (r in ranges.indices step 2) {
+            val first = ceil(ranges[r]).toInt()
+            val last = floor(ranges[r + 1]).toInt()
+            if (last - first < 1) continue
+            val batch = MutableStrokeInputBatch()
+            for (i in first..last) {
+                inputs.populate(i, eraseInput)
+                batch.add(eraseInput)
+            }
+            pieces.add(Stroke(stroke.brush, batch))
+        }
+        return pieces
     }
 
     fun setOnInkChangeListener(listener: (() -> Unit)?) {
@@ -634,22 +861,30 @@ class AndroidXInkView @JvmOverloads constructor(
         currentEraseAction.clear()
         currentEraseBrushTypes.clear()
         currentEraseLegacyStrokes.clear()
+        currentEraseAddedStrokes.clear()
+        currentEraseAddedLegacyStrokes.clear()
     }
 
     private fun finalizeEraseSession() {
-        if (currentEraseAction.isNotEmpty() || currentEraseLegacyStrokes.isNotEmpty()) {
+        // Cut what the eraser passed over since the last batch
+        flushPrecisionErase()
+        if (currentEraseAction.isNotEmpty() || currentEraseLegacyStrokes.isNotEmpty() ||
+            currentEraseAddedStrokes.isNotEmpty() || currentEraseAddedLegacyStrokes.isNotEmpty()) {
             // Add the erase action to undo stack
-            undoStack.add(UndoableAction.EraseStrokes(
-                erasedStrokes = currentEraseAction.toList(),
-                erasedBrushTypes = currentEraseBrushTypes.toMap(),
-                erasedLegacyStrokes = currentEraseLegacyStrokes.toList()
-            ))
-            redoStack.clear()
-            Log.d(TAG, "Finalized erase session: ${currentEraseAction.size} AndroidX strokes, ${currentEraseLegacyStrokes.size} legacy strokes")
+            model?.recordErase(
+                strokes = currentEraseAction.toList(),
+                brushTypes = currentEraseBrushTypes.toMap(),
+                legacyStrokes = currentEraseLegacyStrokes.toList(),
+                addedStrokes = LinkedHashMap(currentEraseAddedStrokes),
+                addedLegacyStrokes = currentEraseAddedLegacyStrokes.toList()
+            )
+            Log.d(TAG, "Finalized erase session: ${currentEraseAction.size} AndroidX strokes, ${currentEraseLegacyStrokes.size} legacy strokes, ${currentEraseAddedStrokes.size + currentEraseAddedLegacyStrokes.size} pieces")
         }
         currentEraseAction.clear()
         currentEraseBrushTypes.clear()
         currentEraseLegacyStrokes.clear()
+        currentEraseAddedStrokes.clear()
+        currentEraseAddedLegacyStrokes.clear()
     }
 
     /**
@@ -748,78 +983,38 @@ class AndroidXInkView @JvmOverloads constructor(
     /**
      * Get strokes as InkStroke list for JSON serialization (Java compatibility)
      */
-    fun getStrokesAsInkStrokes(): List<InkCanvasView.InkStroke> {
-        return finishedStrokes.map { stroke ->
-            // Extract points from the stroke for JSON serialization
-            val points = mutableListOf<PointF>()
-            val inputs = stroke.inputs
-            for (i in 0 until inputs.size) {
-                val input = inputs.get(i)
-                points.add(PointF(input.x, input.y))
-            }
-
-            // Get brush color
-            val brushColor = Color.toArgb(stroke.brush.colorLong)
+    fun getStrokesAsInkStrokes(): List<InkCanvasView.InkStroke> =
+        model?.getStrokesAsInkStrokes() ?: emptyList()
 
-            // Get brush type for this stroke (default to pressure pen if not tracked)
-            val strokeBrushType = strokeBrushTypes[stroke] ?: BRUSH_PRESSURE_PEN
-
-            InkCanvasView.InkStroke(pageIndex, brushColor, stroke.brush.size, strokeBrushType).apply {
-                for (point in points) {
-                    this.points.add(point)
-                }
-                // Rebuild path from points
-                if (this.points.isNotEmpty()) {
-                    path.moveTo(this.points[0].x, this.points[0].y)
-                    for (i in 1 until this.points.size) {
-                        path.lineTo(this.points[i].x, this.points[i].y)
-                    }
-                }
-            }
-        }
-    }
+    /**
+     * All strokes on the page, including ones loaded from storage, e.g. for thumbnails.
+     * Loaded strokes are returned as is and must only be read.
+     */
+    fun getVisibleInkStrokes(): List<InkCanvasView.InkStroke> =
+        model?.getVisibleInkStrokes() ?: emptyList()
 
     /**
      * Load strokes from InkStroke list (Java compatibility)
-     * Note: We store InkStrokes but render them with the canvas path.
-     * Full AndroidX Stroke reconstruction requires MutableStrokeInputBatch which is complex.
+     * Note: The InkStrokes are drawn as canvas paths until the adapter rebuilds them as
+     * AndroidX Strokes in the background (see [PageInkModel.rebuildStroke]).
      */
     fun loadStrokesFromInkStrokes(inkStrokes: List<InkCanvasView.InkStroke>) {
-        // For loading, we'll keep the data but not convert to full AndroidX Strokes
-        // The strokes will be stored but rendered via InkCanvasView compatibility
-        finishedStrokes.clear()
-        strokeBrushTypes.clear()
-        undoStack.clear()
-        redoStack.clear()
-        finishedStrokesView.setLegacyStrokes(inkStrokes)
-        finishedStrokesView.invalidate()
+        val model = model ?: return
+        model.loadStrokes(inkStrokes)
+        finishedStrokesView.invalidateLayer()
     }
 
     /**
      * Check if there are any strokes
      */
-    fun hasStrokes(): Boolean = finishedStrokes.isNotEmpty() || finishedStrokesView.hasLegacyStrokes()
+    fun hasStrokes(): Boolean = model?.hasStrokes() == true
 
     /**
      * Clear all strokes (creates a single undo action for all erased strokes)
      */
     fun clear() {
-        if (!hasStrokes()) return
-
-        // Create an erase action containing all strokes
-        val erasedStrokes = finishedStrokes.toList()
-        val erasedBrushTypes = strokeBrushTypes.toMap()
-        val erasedLegacyStrokes = finishedStrokesView.getLegacyStrokes().toList()
-
-        // Add to undo stack
-        undoStack.add(UndoableAction.EraseStrokes(erasedStrokes, erasedBrushTypes, erasedLegacyStrokes))
-        redoStack.clear()
-
-        // Clear the strokes
-        finishedStrokes.clear()
-        strokeBrushTypes.clear()
-        finishedStrokesView.clearLegacyStrokes()
-        finishedStrokesView.invalidate()
+        if (model?.clear() != true) return
+        finishedStrokesView.invalidateLayer()
         onInkChangeListener?.invoke()
     }
 
@@ -827,30 +1022,8 @@ class AndroidXInkView @JvmOverloads constructor(
      * Undo last action (draw or erase)
      */
     fun undo() {
-        if (undoStack.isEmpty()) return
-
-        val action = undoStack.removeAt(undoStack.size - 1)
-        when (action) {
-            is UndoableAction.AddStroke -> {
-                // Undo drawing: remove the stroke
-                finishedStrokes.remove(action.stroke)
-                strokeBrushTypes.remove(action.stroke)
-                redoStack.add(action)
-            }
-            is UndoableAction.AddLegacyStroke -> {
-                // Undo legacy stroke add: remove it
-                finishedStrokesView.removeLegacyStrokes(listOf(action.stroke))
-                redoStack.add(action)
-            }
-            is UndoableAction.EraseStrokes -> {
-                // Undo erasing: restore the erased strokes
-                finishedStrokes.addAll(action.erasedStrokes)
-                strokeBrushTypes.putAll(action.erasedBrushTypes)
-                finishedStrokesView.addLegacyStrokes(action.erasedLegacyStrokes)
-                redoStack.add(action)
-            }
-        }
-        finishedStrokesView.invalidate()
+        val action = model?.undo() ?: return
+        finishedStrokesView.invalidateLayer()
         onInkChangeListener?.invoke()
         Log.d(TAG, "Undo: ${action::class.simpleName}")
     }
@@ -859,32 +1032,8 @@ class AndroidXInkView @JvmOverloads constructor(
      * Redo last undone action
      */
     fun redo() {
-        if (redoStack.isEmpty()) return
-
-        val action = redoStack.removeAt(redoStack.size - 1)
-        when (action) {
-            is UndoableAction.AddStroke -> {
-                // Redo drawing: add the stroke back
-                finishedStrokes.add(action.stroke)
-                strokeBrushTypes[action.stroke] = action.brushType
-                undoStack.add(action)
-            }
-            is UndoableAction.AddLegacyStroke -> {
-                // Redo legacy stroke add: add it back
-                finishedStrokesView.addLegacyStrokes(listOf(action.stroke))
-                undoStack.add(action)
-            }
-            is UndoableAction.EraseStrokes -> {
-                // Redo erasing: remove the strokes again
-                finishedStrokes.removeAll(action.erasedStrokes.toSet())
-                for (stroke in action.erasedStrokes) {
-                    strokeBrushTypes.remove(stroke)
-                }
-                finishedStrokesView.removeLegacyStrokes(action.erasedLegacyStrokes)
-                undoStack.add(action)
-            }
-        }
-        finishedStrokesView.invalidate()
+        val action = model?.redo() ?: return
+        finishedStrokesView.invalidateLayer()
         onInkChangeListener?.invoke()
         Log.d(TAG, "Redo: ${action::class.simpleName}")
     }
@@ -892,105 +1041,119 @@ class AndroidXInkView @JvmOverloads constructor(
     /**
      * Check if redo is available
      */
-    fun canRedo(): Boolean = redoStack.isNotEmpty()
+    fun canRedo(): Boolean = model?.canRedo() == true
 
     /**
      * Check if undo is available
      */
-    fun canUndo(): Boolean = undoStack.isNotEmpty()
+    fun canUndo(): Boolean = model?.canUndo() == true
 
     /**
-     * Inner view for rendering finished strokes
+     * Inner view for rendering finished strokes.
+     *
+     * At 1x the strokes are composited into an offscreen layer: a new stroke is drawn
+     * onto it, an erase redraws only the erased region, and any other redraw, such as
+     * the hover cursor moving, is a single bitmap draw. Zoomed in, the layer would be
+     * scaled up, so strokes are drawn as vectors until the zoom returns to 1x.
      */
     private inner class FinishedStrokesView(context: Context) : View(context) {
 
         private val identityMatrix = Matrix()
-        private var legacyStrokes: MutableList<InkCanvasView.InkStroke> = mutableListOf()
 
-        init {
-            setWillNotDraw(false)
+        // Reused for every legacy stroke so drawing a frame allocates nothing
+        private val legacyPaint = Paint().apply {
+            style = Paint.Style.STROKE
+            strokeCap = Paint.Cap.ROUND
+            strokeJoin = Paint.Join.ROUND
+            isAntiAlias = true
         }
+        private val highlighterBounds = RectF()
+        private val strokeBounds = RectF()
+        private val visibleRect = Rect()
 
-        fun setLegacyStrokes(strokes: List<InkCanvasView.InkStroke>) {
-            legacyStrokes = strokes.toMutableList()
-        }
+        // Offscreen layer, only allocated while the page has strokes and is on screen
+        private var layer: Bitmap? = null
+        private var layerCanvas: Canvas? = null
+        private var layerValid = false
+        // Region of the layer to redraw on the next frame
+        private val dirtyRect = RectF()
 
-        fun clearLegacyStrokes() {
-            legacyStrokes.clear()
-        }
+        val layerBytes: Int
+            get() = layer?.allocationByteCount ?: 0
 
-        fun addLegacyStrokes(strokes: List<InkCanvasView.InkStroke>) {
-            legacyStrokes.addAll(strokes)
+        init {
+            setWillNotDraw(false)
         }
 
-        fun hasLegacyStrokes(): Boolean = legacyStrokes.isNotEmpty()
-
         /**
-         * Get legacy strokes for eraser hit-testing
+         * Redraw the whole layer on the next frame.
          */
-        fun getLegacyStrokes(): List<InkCanvasView.InkStroke> = legacyStrokes.toList()
+        fun invalidateLayer() {
+            layerValid = false
+            invalidate()
+        }
 
         /**
-         * Remove legacy strokes (used by eraser)
+         * Redraw the layer within [region] on the next frame, e.g. where strokes were erased.
          */
-        fun removeLegacyStrokes(strokesToRemove: List<InkCanvasView.InkStroke>) {
-            legacyStrokes.removeAll(strokesToRemove.toSet())
+        fun invalidateLayer(region: RectF) {
+            dirtyRect.union(region)
+            invalidate()
         }
 
-        fun setStrokes(strokes: List<Stroke>) {
-            // This method triggers a re-render of the finished strokes
-            // The finishedStrokes list is already updated by the caller
+        /**
+         * Draw newly finished strokes on top of the layer.
+         */
+        fun addToLayer(strokes: Collection<Stroke>) {
+            val canvas = layerCanvas
+            if (layerValid && canvas != null) {
+                for (stroke in strokes) {
+                    canvasStrokeRenderer.draw(
+                        stroke = stroke,
+                        canvas = canvas,
+                        strokeToScreenTransform = identityMatrix
+                    )
+                }
+            }
             invalidate()
         }
 
-        override fun onDraw(canvas: Canvas) {
-            super.onDraw(canvas)
-
-            // Draw AndroidX Ink strokes
-            for (stroke in finishedStrokes) {
-                canvasStrokeRenderer.draw(
-                    stroke = stroke,
-                    canvas = canvas,
-                    strokeToScreenTransform = identityMatrix
-                )
-            }
+        override fun onSizeChanged(w: Int, h: Int, oldw: Int, oldh: Int) {
+            super.onSizeChanged(w, h, oldw, oldh)
+            releaseLayer()
+        }
 
-            // Draw legacy strokes (loaded from JSON) with proper layer-based rendering for highlighter
-            for (inkStroke in legacyStrokes) {
-                val isHighlighter = inkStroke.brushType == BRUSH_HIGHLIGHTER ||
-                        (inkStroke.brushType == 0 && Color.alpha(inkStroke.color) < 255) // Legacy detection
+        override fun onDetachedFromWindow() {
+            super.onDetachedFromWindow()
+            // Paths are rebuilt on the next draw; off-screen pages keep only point data
+            model?.releasePaths()
+            releaseLayer()
+        }
 
-                val paint = Paint().apply {
-                    strokeWidth = inkStroke.strokeWidth
-                    style = Paint.Style.STROKE
-                    strokeCap = Paint.Cap.ROUND
-                    strokeJoin = Paint.Join.ROUND
-                    isAntiAlias = true
-                }
+        override fun onDraw(canvas: Canvas) {
+            super.onDraw(canvas)
 
-                if (isHighlighter) {
-                    // Use layer-based rendering for highlighter to ensure consistent alpha
-                    // This prevents darkening when overlapping or after save/load
-                    val alpha = Color.alpha(inkStroke.color)
-                    paint.color = Color.argb(255, Color.red(inkStroke.color),
-                        Color.green(inkStroke.color), Color.blue(inkStroke.color))
-
-                    // Calculate bounds for the path
-                    val bounds = RectF()
-                    inkStroke.path.computeBounds(bounds, true)
-                    // Expand bounds slightly for stroke width
-                    bounds.inset(-inkStroke.strokeWidth, -inkStroke.strokeWidth)
-
-                    // Save layer with alpha - this ensures proper transparency
-                    val saveCount = canvas.saveLayerAlpha(bounds, alpha)
-                    canvas.drawPath(inkStroke.path, paint)
-                    canvas.restoreToCount(saveCount)
-                } else {
-                    // Regular stroke rendering
-                    paint.color = inkStroke.color
-                    canvas.drawPath(inkStroke.path, paint)
+            // Off-screen pages, e.g. ones the pager keeps bound, draw without a layer
+            val layerCanvas = if (isZoomedIn() || !getGlobalVisibleRect(visibleRect)) null else ensureLayer()
+            if (layerCanvas != null) {
+                if (!layerValid) {
+                    layerCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR)
+                    drawStrokes(layerCanvas)
+                    layerValid = true
+                } else if (!dirtyRect.isEmpty) {
+                    val saveCount = layerCanvas.save()
+                    layerCanvas.clipRect(dirtyRect)
+                    layerCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR)
+                    drawStrokes(layerCanvas)
+                    layerCanvas.restoreToCount(saveCount)
                 }
+                canvas.drawBitmap(layer!!, 0f, 0f, null)
+            } else {
+                // Zoomed in, off screen or nothing to cache; the layer is rebuilt when it is used again
+                layerValid = false
+                drawStrokes(canvas)
             }
+            dirtyRect.setEmpty()
 
             // Draw hover cursor when stylus is hovering
             if (isHovering && hoverX >= 0 && hoverY >= 0) {
@@ -1003,5 +1166,114 @@ class AndroidXInkView @JvmOverloads constructor(
                 canvas.drawCircle(hoverX, hoverY, cursorRadius, hoverCursorPaint)
             }
         }
+
+        /**
+         * Canvas of the layer, allocated for the current size. Null if there is nothing to cache.
+         */
+        private fun ensureLayer(): Canvas? {
+            if (width <= 0 || height <= 0 || model?.hasStrokes() != true) {
+                releaseLayer()
+                return null
+            }
+            if (layer == null) {
+                val bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+                layer = bitmap
+                layerCanvas = Canvas(bitmap)
+                layerValid = false
+            }
+            return layerCanvas
+        }
+
+        fun releaseLayer() {
+            layer?.recycle()
+            layer = null
+            layerCanvas = null
+            layerValid = false
+        }
+
+        /**
+         * Whether a zoom container scales this view up, walking the ancestors without allocating.
+         */
+        private fun isZoomedIn(): Boolean {
+            var scale = scaleX
+            var ancestor = parent
+            while (ancestor is View) {
+                scale *= ancestor.scaleX
+                ancestor = ancestor.parent
+            }
+            return scale > 1f
+        }
+
+        private fun drawStrokes(canvas: Canvas) {
+            val model = model ?: return
+            // Draw legacy strokes (loaded from JSON) first: they predate the ones drawn
+            // this session, which the layer draws on top as they finish
+            val legacyStrokes = model.legacyStrokes
+            val paint = legacyPaint
+            var i = 0
+            while (i < legacyStrokes.size) {
+                val inkStroke = legacyStrokes[i]
+                if (!isHighlighter(inkStroke)) {
+                    // Regular stroke rendering
+                    paint.color = inkStroke.color
+                    paint.strokeWidth = inkStroke.strokeWidth
+                    canvas.drawPath(inkStroke.path, paint)
+                    i++
+                    continue
+                }
+
+                // Highlighters are drawn opaque into a layer composited with their alpha,
+                // so a stroke crossing itself doesn't darken. Consecutive highlighters of
+                // the same color, alpha included, share one layer over their combined
+                // bounds instead of one layer each. Where they overlap the tint then stays
+                // even rather than darkening as two layers would; highlighters of different
+                // colors would cover each other, so they never share one.
+                val color = inkStroke.color
+                val alpha = if (PageInkModel.isOpaqueHighlighter(inkStroke)) {
+                    (HIGHLIGHTER_OPACITY * 255).roundToInt()
+                } else {
+                    Color.alpha(color)
+                }
+                val bounds = highlighterBounds
+                computeHighlighterBounds(inkStroke, bounds)
+                var end = i + 1
+                while (end < legacyStrokes.size) {
+                    val next = legacyStrokes[end]
+                    if (!isHighlighter(next) || next.color != color) break
+                    computeHighlighterBounds(next, strokeBounds)
+                    bounds.union(strokeBounds)
+                    end++
+                }
+
+                val saveCount = canvas.saveLayerAlpha(bounds, alpha)
+                paint.color = color or 0xFF000000.toInt()
+                for (j in i until end) {
+                    val highlighter = legacyStrokes[j]
+                    paint.strokeWidth = highlighter.strokeWidth
+                    canvas.drawPath(highlighter.path, paint)
+                }
+                canvas.restoreToCount(saveCount)
+                i = end
+            }
+
+            // Draw AndroidX Ink strokes (indexed loops avoid an iterator per frame)
+            val finishedStrokes = model.finishedStrokes
+            for (i in finishedStrokes.indices) {
+                canvasStrokeRenderer.draw(
+                    stroke = finishedStrokes[i],
+                    canvas = canvas,
+                    strokeToScreenTransform = identityMatrix
+                )
+            }
+        }
+
+        private fun isHighlighter(stroke: InkCanvasView.InkStroke): Boolean =
+            PageInkModel.brushTypeOf(stroke) == BRUSH_HIGHLIGHTER
+
+        private fun computeHighlighterBounds(stroke: InkCanvasView.InkStroke, out: RectF) {
+            stroke.computeBounds(out)
+            // Expand bounds slightly for stroke width
+            out.inset(-stroke.strokeWidth, -stroke.strokeWidth)
+        }
     }
 }
@@ -0,0 +1,562 @@
+package com.capacitor.pdfannotator
+
+import android.graphics.Color
+import android.graphics.RectF
+import androidx.ink.brush.Brush
+import androidx.ink.strokes.MutableStrokeInputBatch
+import androidx.ink.strokes.Stroke
+import androidx.ink.strokes.StrokeInput
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * Annotations of one page: finished strokes, strokes loaded from storage and the
+ * undo/redo history.
+ *
+ * Models live in [PdfPagerAdapter] for the whole session and cost only their stroke
+ * data. [AndroidXInkView]s are reused as pages scroll and bound to the model of the
+ * page they currently show, so view memory scales with the visible pages rather than
+ * with the number of pages visited. Must be used on the main thread.
+ */
+class PageInkModel(val pageIndex: Int) {
+
+    companion object {
+        // Grid cell size of the stroke index in view pixels, about a few eraser widths
+        private const val INDEX_CELL_SIZE = 256f
+
+        /**
+         * Brush type a loaded stroke is drawn with. Strokes saved before brush types were
+         * stored are highlighters if their color is translucent.
+         */
+        @JvmStatic
+        fun brushTypeOf(stroke: InkCanvasView.InkStroke): Int =
+            if (stroke.brushType == 0 && Color.alpha(stroke.color) < 255) AndroidXInkView.BRUSH_HIGHLIGHTER
+            else stroke.brushType
+
+        /**
+         * Whether a loaded stroke is a highlighter saved without its transparency. XFDF
+         * stores colors opaque and only uses the opacity to tell highlighters apart, so
+         * these are drawn with the opacity of live highlighters.
+         */
+        @JvmStatic
+        fun isOpaqueHighlighter(stroke: InkCanvasView.InkStroke): Boolean =
+            brushTypeOf(stroke) == AndroidXInkView.BRUSH_HIGHLIGHTER && Color.alpha(stroke.color) == 255
+
+        /**
+         * Rebuild a loaded stroke as an AndroidX [Stroke] from its saved inputs, with the
+         * brush it was drawn with. Computing the stroke's mesh is the expensive part, so
+         * call this off the main thread. Returns null if the inputs can't form a stroke.
+         */
+        @JvmStatic
+        fun rebuildStroke(stroke: InkCanvasView.InkStroke): Stroke? {
+            val count = stroke.pointCount
+            if (count == 0) return null
+            return try {
+                // Highlighters get the opacity of live ones unless their color carries one
+                val color = stroke.color
+                val colorLong = if (isOpaqueHighlighter(stroke)) {
+                    Color.pack(Color.red(color) / 255f, Color.green(color) / 255f, Color.blue(color) / 255f,
+                        AndroidXInkView.HIGHLIGHTER_OPACITY)
+                } else {
+                    Color.pack(color)
+                }
+                val brush = Brush.createWithColorLong(
+                    family = AndroidXInkView.brushFamilyFor(brushTypeOf(stroke)),
+                    colorLong = colorLong,
+                    size = stroke.strokeWidth,
+                    epsilon = 0.1f
+                )
+                // A batch needs pressure on every input or on none
+                var hasPressure = stroke.hasPressureAndTime()
+                for (i in 0 until count) {
+                    if (stroke.getPressure(i) == InkCanvasView.InkStroke.NO_PRESSURE) {
+                        hasPressure = false
+                        break
+                    }
+                }
+                val input = StrokeInput()
+                val batch = MutableStrokeInputBatch()
+                var time = 0L
+                for (i in 0 until count) {
+                    // Input times must not go backwards
+                    time = maxOf(time, stroke.getTimeMillis(i))
+                    input.update(
+                        x = stroke.getX(i),
+                        y = stroke.getY(i),
+                        elapsedTimeMillis = time,
+                        pressure = if (hasPressure) stroke.getPressure(i) else StrokeInput.NO_PRESSURE
+                    )
+                    batch.add(input)
+                }
+                Stroke(brush, batch)
+            } catch (e: IllegalArgumentException) {
+                null
+            }
+        }
+    }
+
+    // Action-based undo/redo system (supports both drawing and erasing)
+    sealed class UndoableAction {
+        data class AddStroke(val stroke: Stroke, val brushType: Int) : UndoableAction()
+        data class AddLegacyStroke(val stroke: InkCanvasView.InkStroke) : UndoableAction()
+        // The precision eraser replaces strokes with the pieces it leaves behind. Positions
+        // put each stroke back in its place in the drawing order (see [DrawingOrder]):
+        // ink strokes counted from the top, loaded strokes from the bottom. Null puts
+        // them on top.
+        class EraseStrokes(
+            val erasedStrokes: List<Stroke>,
+            val erasedBrushTypes: Map<Stroke, Int>,
+            val erasedLegacyStrokes: List<InkCanvasView.InkStroke>,
+            val addedStrokes: Map<Stroke, Int> = emptyMap(),
+            val addedLegacyStrokes: List<InkCanvasView.InkStroke> = emptyList(),
+            val erasedPositions: IntArray? = null,
+            val erasedLegacyPositions: IntArray? = null,
+            val addedPositions: IntArray? = null,
+            val addedLegacyPositions: IntArray? = null
+        ) : UndoableAction()
+    }
+
+    // Stroke storage
+    private val _finishedStrokes = mutableListOf<Stroke>()
+    private val strokeBrushTypes = mutableMapOf<Stroke, Int>() // Track brush type for each stroke
+
+    // Strokes loaded from storage, drawn from their points
+    private val _legacyStrokes = mutableListOf<InkCanvasView.InkStroke>()
+
+    private val undoStack = mutableListOf<UndoableAction>()
+    private val redoStack = mutableListOf<UndoableAction>()
+
+    // Drawing order before the edit that [recordErase] will record, taken on its first change
+    private var finishedBeforeEdit: List<Stroke>? = null
+    private var legacyBeforeEdit: List<InkCanvasView.InkStroke>? = null
+
+    // Stroke bounds for hit testing, built on the first query and kept up to date afterwards
+    private val strokeIndex = StrokeGrid<Stroke>(INDEX_CELL_SIZE)
+    private val legacyIndex = StrokeGrid<InkCanvasView.InkStroke>(INDEX_CELL_SIZE)
+    private var indexBuilt = false
+    private val indexBounds = RectF()
+
+    val finishedStrokes: List<Stroke> get() = _finishedStrokes
+    val legacyStrokes: List<InkCanvasView.InkStroke> get() = _legacyStrokes
+
+    fun getBrushType(stroke: Stroke): Int = strokeBrushTypes[stroke] ?: AndroidXInkView.BRUSH_PRESSURE_PEN
+
+    /**
+     * Add a newly drawn stroke as an undoable action.
+     */
+    fun addStroke(stroke: Stroke, brushType: Int) {
+        endEdit()
+        _finishedStrokes.add(stroke)
+        strokeBrushTypes[stroke] = brushType
+        index(stroke)
+        // Add to undo stack and clear redo stack
+        undoStack.add(UndoableAction.AddStroke(stroke, brushType))
+        redoStack.clear()
+    }
+
+    /**
+     * Remove strokes without recording history; the erase gesture records a single
+     * action with [recordErase] when it ends.
+     */
+    fun removeStrokes(strokes: Collection<Stroke>) {
+        beginEdit()
+        _finishedStrokes.removeAll(strokes.toSet())
+        strokes.forEach { detach(it) }
+    }
+
+    fun removeLegacyStrokes(strokes: List<InkCanvasView.InkStroke>) {
+        beginEdit()
+        _legacyStrokes.removeAll(strokes.toSet())
+        strokes.forEach { detach(it) }
+    }
+
+    /**
+     * Add strokes on top without recording history; the erase gesture records them
+     * with [recordErase] when it ends.
+     */
+    fun insertStrokes(strokes: Map<Stroke, Int>) {
+        beginEdit()
+        for ((stroke, brushType) in strokes) {
+            _finishedStrokes.add(stroke)
+            strokeBrushTypes[stroke] = brushType
+            index(stroke)
+        }
+    }
+
+    fun insertLegacyStrokes(strokes: List<InkCanvasView.InkStroke>) {
+        beginEdit()
+        _legacyStrokes.addAll(strokes)
+        strokes.forEach { index(it) }
+    }
+
+    /**
+     * Replace a stroke with [pieces] at its place in the drawing order, without recording
+     * history, such as when the precision eraser cuts it.
+     */
+    fun replaceStroke(stroke: Stroke, pieces: Map<Stroke, Int>) {
+        val position = _finishedStrokes.indexOfFirst { it === stroke }
+        if (position < 0) {
+            insertStrokes(pieces)
+            return
+        }
+        beginEdit()
+        _finishedStrokes.removeAt(position)
+        detach(stroke)
+        _finishedStrokes.addAll(position, pieces.keys)
+        for ((piece, brushType) in pieces) {
+            strokeBrushTypes[piece] = brushType
+            index(piece)
+        }
+    }
+
+    /**
+     * Replace a loaded stroke with [pieces] at its place in the drawing order, without
+     * recording history.
+     */
+    fun replaceLegacyStroke(stroke: InkCanvasView.InkStroke, pieces: List<InkCanvasView.InkStroke>) {
+        val position = _legacyStrokes.indexOfFirst { it === stroke }
+        if (position < 0) {
+            insertLegacyStrokes(pieces)
+            return
+        }
+        beginEdit()
+        _legacyStrokes.removeAt(position)
+        detach(stroke)
+        _legacyStrokes.addAll(position, pieces)
+        pieces.forEach { index(it) }
+    }
+
+    /**
+     * Record the changes made since the last recorded action as one undoable erase,
+     * with the drawing order the strokes had so undo and redo restore it.
+     */
+    fun recordErase(
+        strokes: List<Stroke>,
+        brushTypes: Map<Stroke, Int>,
+        legacyStrokes: List<InkCanvasView.InkStroke>,
+        addedStrokes: Map<Stroke, Int> = emptyMap(),
+        addedLegacyStrokes: List<InkCanvasView.InkStroke> = emptyList()
+    ) {
+        // Where the erased strokes were before the first change, and where the pieces are now
+        val finishedBefore = finishedBeforeEdit ?: _finishedStrokes
+        val legacyBefore = legacyBeforeEdit ?: _legacyStrokes
+        undoStack.add(UndoableAction.EraseStrokes(
+            strokes, brushTypes, legacyStrokes, addedStrokes, addedLegacyStrokes,
+            erasedPositions = DrawingOrder.positionsOf(finishedBefore, strokes, true),
+            erasedLegacyPositions = DrawingOrder.positionsOf(legacyBefore, legacyStrokes, false),
+            addedPositions = DrawingOrder.positionsOf(_finishedStrokes, addedStrokes.keys.toList(), true),
+            addedLegacyPositions = DrawingOrder.positionsOf(_legacyStrokes, addedLegacyStrokes, false)
+        ))
+        redoStack.clear()
+        endEdit()
+    }
+
+    /**
+     * Replace the page's strokes with ones loaded from storage, dropping the history.
+     */
+    fun loadStrokes(inkStrokes: List<InkCanvasView.InkStroke>) {
+        endEdit()
+        _finishedStrokes.clear()
+        strokeBrushTypes.clear()
+        undoStack.clear()
+        redoStack.clear()
+        _legacyStrokes.forEach { it.releasePath() }
+        _legacyStrokes.clear()
+        _legacyStrokes.addAll(inkStrokes)
+        clearIndex()
+    }
+
+    fun hasStrokes(): Boolean = _finishedStrokes.isNotEmpty() || _legacyStrokes.isNotEmpty()
+
+    /**
+     * Remove all strokes as a single undoable action. Returns false if there was nothing to clear.
+     */
+    fun clear(): Boolean {
+        if (!hasStrokes()) return false
+
+        endEdit()
+        val finished = _finishedStrokes.toList()
+        val legacy = _legacyStrokes.toList()
+        undoStack.add(UndoableAction.EraseStrokes(
+            finished, strokeBrushTypes.toMap(), legacy,
+            erasedPositions = DrawingOrder.positionsOf(finished, finished, true),
+            erasedLegacyPositions = DrawingOrder.positionsOf(legacy, legacy, false)
+        ))
+        redoStack.clear()
+
+        _finishedStrokes.clear()
+        strokeBrushTypes.clear()
+        _legacyStrokes.forEach { it.releasePath() }
+        _legacyStrokes.clear()
+        strokeIndex.clear()
+        legacyIndex.clear()
+        return true
+    }
+
+    /**
+     * Undo the last action (draw or erase). Returns the undone action, or null if there was none.
+     */
+    fun undo(): UndoableAction? {
+        if (undoStack.isEmpty()) return null
+
+        endEdit()
+        val action = undoStack.removeAt(undoStack.size - 1)
+        when (action) {
+            is UndoableAction.AddStroke -> {
+                // Undo drawing: remove the stroke
+                _finishedStrokes.remove(action.stroke)
+                detach(action.stroke)
+            }
+            is UndoableAction.AddLegacyStroke -> {
+                // Undo legacy stroke add: remove it
+                _legacyStrokes.remove(action.stroke)
+                detach(action.stroke)
+            }
+            is UndoableAction.EraseStrokes -> {
+                // Undo erasing: drop the pieces left behind and put the erased strokes back
+                // where they were
+                val added = action.addedStrokes.keys
+                DrawingOrder.replace(_finishedStrokes, added, action.erasedStrokes, action.erasedPositions, true)
+                added.forEach { detach(it) }
+                strokeBrushTypes.putAll(action.erasedBrushTypes)
+                action.erasedStrokes.forEach { index(it) }
+
+                DrawingOrder.replace(_legacyStrokes, action.addedLegacyStrokes, action.erasedLegacyStrokes,
+                    action.erasedLegacyPositions, false)
+                action.addedLegacyStrokes.forEach { detach(it) }
+                action.erasedLegacyStrokes.forEach { index(it) }
+            }
+        }
+        redoStack.add(action)
+        return action
+    }
+
+    /**
+     * Redo the last undone action. Returns the redone action, or null if there was none.
+     */
+    fun redo(): UndoableAction? {
+        if (redoStack.isEmpty()) return null
+
+        endEdit()
+        val action = redoStack.removeAt(redoStack.size - 1)
+        when (action) {
+            is UndoableAction.AddStroke -> {
+                // Redo drawing: add the stroke back
+                _finishedStrokes.add(action.stroke)
+                strokeBrushTypes[action.stroke] = action.brushType
+                index(action.stroke)
+            }
+            is UndoableAction.AddLegacyStroke -> {
+                // Redo legacy stroke add: add it back
+                _legacyStrokes.add(action.stroke)
+                index(action.stroke)
+            }
+            is UndoableAction.EraseStrokes -> {
+                // Redo erasing: remove the strokes again and put the pieces back where they were
+                val added = action.addedStrokes.keys.toList()
+                DrawingOrder.replace(_finishedStrokes, action.erasedStrokes, added, action.addedPositions, true)
+                action.erasedStrokes.forEach { detach(it) }
+                strokeBrushTypes.putAll(action.addedStrokes)
+                added.forEach { index(it) }
+
+                DrawingOrder.replace(_legacyStrokes, action.erasedLegacyStrokes, action.addedLegacyStrokes,
+                    action.addedLegacyPositions, false)
+                action.erasedLegacyStrokes.forEach { detach(it) }
+                action.addedLegacyStrokes.forEach { index(it) }
+            }
+        }
+        undoStack.add(action)
+        return action
+    }
+
+    fun canUndo(): Boolean = undoStack.isNotEmpty()
+
+    /**
+     * Loaded strokes that can be swapped for rebuilt AndroidX strokes without changing
+     * the drawing order. Loaded strokes are drawn below all others, so only the ones
+     * above every loaded stroke that must stay can move: strokes an undo or redo
+     * action refers to stay loaded.
+     */
+    fun getConvertibleLegacyStrokes(): List<InkCanvasView.InkStroke> {
+        val referenced = legacyStrokesInHistory()
+        var start = _legacyStrokes.size
+        while (start > 0) {
+            val legacy = _legacyStrokes[start - 1]
+            if (legacy in referenced && legacy.pointCount > 0) break
+            start--
+        }
+        return _legacyStrokes.subList(start, _legacyStrokes.size).filter { it !in referenced }
+    }
+
+    /**
+     * Swap loaded strokes for the strokes rebuilt from them, without recording history.
+     * Working down from the top, strokes are swapped until one that must stay loaded
+     * is reached: one that wasn't rebuilt, was removed or was picked up by the history
+     * since the rebuild started. Strokes below it stay loaded too, so every stroke keeps
+     * its place in the drawing order; the swapped ones go below the strokes drawn since
+     * loading, as the loaded strokes were. Strokes without points draw nothing and
+     * don't hold others back. Returns true if anything was swapped.
+     */
+    fun replaceLegacyStrokes(rebuilt: Map<InkCanvasView.InkStroke, Stroke>): Boolean {
+        if (rebuilt.isEmpty()) return false
+        val referenced = legacyStrokesInHistory()
+        val swapped = Collections.newSetFromMap(IdentityHashMap<InkCanvasView.InkStroke, Boolean>())
+        val replaced = mutableListOf<Stroke>()
+        for (i in _legacyStrokes.indices.reversed()) {
+            val legacy = _legacyStrokes[i]
+            val stroke = if (legacy in referenced) null else rebuilt[legacy]
+            if (stroke == null) {
+                if (legacy.pointCount > 0) break
+                continue
+            }
+            swapped.add(legacy)
+            strokeBrushTypes[stroke] = brushTypeOf(legacy)
+            replaced.add(stroke)
+        }
+        if (replaced.isEmpty()) return false
+        _legacyStrokes.removeAll(swapped)
+        for (legacy in swapped) {
+            legacy.releasePath()
+            legacyIndex.remove(legacy)
+        }
+        // Collected top down
+        replaced.reverse()
+        _finishedStrokes.addAll(0, replaced)
+        replaced.forEach { index(it) }
+        return true
+    }
+
+    fun hasLegacyStrokes(): Boolean = _legacyStrokes.isNotEmpty()
+
+    private fun legacyStrokesInHistory(): Set<InkCanvasView.InkStroke> {
+        val strokes = Collections.newSetFromMap(IdentityHashMap<InkCanvasView.InkStroke, Boolean>())
+        for (action in undoStack + redoStack) {
+            when (action) {
+                is UndoableAction.AddLegacyStroke -> strokes.add(action.stroke)
+                is UndoableAction.EraseStrokes -> {
+                    strokes.addAll(action.erasedLegacyStrokes)
+                    strokes.addAll(action.addedLegacyStrokes)
+                }
+                is UndoableAction.AddStroke -> {}
+            }
+        }
+        return strokes
+    }
+
+    /**
+     * Add the strokes whose bounds intersect the rectangle to [out]. Candidates still
+     * need an exact hit test.
+     */
+    fun queryStrokes(left: Float, top: Float, right: Float, bottom: Float, out: MutableList<Stroke>) {
+        ensureIndex()
+        strokeIndex.query(left, top, right, bottom, out)
+    }
+
+    /**
+     * Add the loaded strokes whose bounds, widened by their stroke width, intersect
+     * the rectangle to [out]. Candidates still need an exact hit test.
+     */
+    fun queryLegacyStrokes(
+        left: Float, top: Float, right: Float, bottom: Float,
+        out: MutableList<InkCanvasView.InkStroke>
+    ) {
+        ensureIndex()
+        legacyIndex.query(left, top, right, bottom, out)
+    }
+
+    fun canRedo(): Boolean = redoStack.isNotEmpty()
+
+    /**
+     * Get strokes as InkStroke list for JSON serialization (Java compatibility)
+     */
+    fun getStrokesAsInkStrokes(): List<InkCanvasView.InkStroke> {
+        val input = StrokeInput()
+        return _finishedStrokes.map { stroke ->
+            // Get brush color
+            val brushColor = Color.toArgb(stroke.brush.colorLong)
+
+            // Copy the inputs into packed point storage, reusing one StrokeInput
+            InkCanvasView.InkStroke(pageIndex, brushColor, stroke.brush.size, getBrushType(stroke)).apply {
+                val inputs = stroke.inputs
+                for (i in 0 until inputs.size) {
+                    inputs.populate(i, input)
+                    addPoint(input.x, input.y, input.pressure, input.elapsedTimeMillis)
+                }
+            }
+        }
+    }
+
+    /**
+     * All strokes on the page in drawing order, including loaded ones not yet rebuilt,
+     * e.g. for saving and thumbnails. Loaded strokes are returned as is and must only be read.
+     */
+    fun getVisibleInkStrokes(): List<InkCanvasView.InkStroke> = _legacyStrokes + getStrokesAsInkStrokes()
+
+    /**
+     * Drop cached paths of loaded strokes; they are rebuilt on the next draw.
+     */
+    fun releasePaths() {
+        _legacyStrokes.forEach { it.releasePath() }
+    }
+
+    /**
+     * Number of loaded strokes that currently have a Path built.
+     */
+    fun materializedPathCount(): Int = _legacyStrokes.count { it.hasPath() }
+
+    /**
+     * Remember the drawing order before the first change of an edit recorded by [recordErase].
+     */
+    private fun beginEdit() {
+        if (finishedBeforeEdit == null) {
+            finishedBeforeEdit = _finishedStrokes.toList()
+            legacyBeforeEdit = _legacyStrokes.toList()
+        }
+    }
+
+    private fun endEdit() {
+        finishedBeforeEdit = null
+        legacyBeforeEdit = null
+    }
+
+    /**
+     * Forget a stroke that was taken out of the drawing order.
+     */
+    private fun detach(stroke: Stroke) {
+        strokeBrushTypes.remove(stroke)
+        strokeIndex.remove(stroke)
+    }
+
+    private fun detach(stroke: InkCanvasView.InkStroke) {
+        // Removed strokes only live on in the undo stack; rebuild their paths if restored
+        stroke.releasePath()
+        legacyIndex.remove(stroke)
+    }
+
+    private fun ensureIndex() {
+        if (indexBuilt) return
+        indexBuilt = true
+        _finishedStrokes.forEach { index(it) }
+        _legacyStrokes.forEach { index(it) }
+    }
+
+    private fun clearIndex() {
+        strokeIndex.clear()
+        legacyIndex.clear()
+        indexBuilt = false
+    }
+
+    private fun index(stroke: Stroke) {
+        if (!indexBuilt) return
+        // Stroke shapes already include the brush width
+        val box = stroke.shape.computeBoundingBox() ?: return
+        strokeIndex.insert(stroke, box.xMin, box.yMin, box.xMax, box.yMax)
+    }
+
+    private fun index(stroke: InkCanvasView.InkStroke) {
+        if (!indexBuilt) return
+        stroke.computeBounds(indexBounds)
+        indexBounds.inset(-stroke.strokeWidth, -stroke.strokeWidth)
+        legacyIndex.insert(stroke, indexBounds.left, indexBounds.top, indexBounds.right, indexBounds.bottom)
+    }
+}
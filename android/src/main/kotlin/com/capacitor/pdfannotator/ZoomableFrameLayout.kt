@@ -62,6 +62,17 @@ class ZoomableFrameLayout @JvmOverloads constructor(
         fun onGestureEnded()
     }
 
+    // Listener for when zoom/pan comes to rest (gesture end, double-tap, reset)
+    var onZoomSettledListener: OnZoomSettledListener? = null
+
+    /**
+     * Interface to listen for the zoom state settling.
+     * Useful for expensive work like re-rendering at the new resolution.
+     */
+    interface OnZoomSettledListener {
+        fun onZoomSettled(scale: Float, translateX: Float, translateY: Float)
+    }
+
     private var isGestureActive = false
 
     init {
@@ -194,6 +205,7 @@ class ZoomableFrameLayout @JvmOverloads constructor(
                 if (isGestureActive) {
                     isGestureActive = false
                     onGestureStateListener?.onGestureEnded()
+                    notifyZoomSettled()
                 }
             }
 
@@ -270,6 +282,7 @@ class ZoomableFrameLayout @JvmOverloads constructor(
         isPanning = false
         multiTouchGestureStarted = false
         applyTransformation()
+        notifyZoomSettled()
     }
 
     /**
@@ -307,6 +320,11 @@ class ZoomableFrameLayout @JvmOverloads constructor(
             clampTranslation()
         }
         applyTransformation()
+        notifyZoomSettled()
+    }
+
+    private fun notifyZoomSettled() {
+        onZoomSettledListener?.onZoomSettled(scaleFactor, translateX, translateY)
     }
 
     private inner class ScaleListener : ScaleGestureDetector.SimpleOnScaleGestureListener() {
@@ -0,0 +1,83 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class DrawingOrderTest {
+
+    @Test
+    public void positionsCountFromEitherEnd() {
+        List<String> list = Arrays.asList("a", "b", "c", "d");
+        assertArrayEquals(new int[]{1, 3, -1},
+                DrawingOrder.positionsOf(list, Arrays.asList("b", "d", "x"), false));
+        assertArrayEquals(new int[]{2, 0, -1},
+                DrawingOrder.positionsOf(list, Arrays.asList("b", "d", "x"), true));
+    }
+
+    @Test
+    public void replayingAnEditRestoresBothOrders() {
+        Random random = new Random(3);
+        for (boolean fromTop : new boolean[]{false, true}) {
+            for (int n = 0; n < 1_000; n++) {
+                List<String> before = new ArrayList<>();
+                for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                    before.add("s" + i);
+                }
+                // Remove some strokes and put pieces of some of them in their place
+                List<String> after = new ArrayList<>();
+                List<String> removed = new ArrayList<>();
+                List<String> added = new ArrayList<>();
+                for (String stroke : before) {
+                    if (random.nextInt(3) > 0) {
+                        after.add(stroke);
+                        continue;
+                    }
+                    removed.add(stroke);
+                    for (int p = random.nextInt(3); p > 0; p--) {
+                        String piece = stroke + "." + p;
+                        after.add(piece);
+                        added.add(piece);
+                    }
+                }
+                int[] removedPositions = DrawingOrder.positionsOf(before, removed, fromTop);
+                int[] addedPositions = DrawingOrder.positionsOf(after, added, fromTop);
+
+                List<String> list = new ArrayList<>(after);
+                DrawingOrder.replace(list, added, removed, removedPositions, fromTop);
+                assertEquals(before, list);
+                DrawingOrder.replace(list, removed, added, addedPositions, fromTop);
+                assertEquals(after, list);
+            }
+        }
+    }
+
+    @Test
+    public void positionsFromTheTopIgnoreStrokesAddedBelow() {
+        List<String> before = Arrays.asList("a", "b", "c");
+        List<String> removed = Collections.singletonList("b");
+        int[] positions = DrawingOrder.positionsOf(before, removed, true);
+
+        // Rebuilt strokes were inserted at the bottom since
+        List<String> list = new ArrayList<>(Arrays.asList("r1", "r2", "a", "c"));
+        DrawingOrder.replace(list, Collections.emptyList(), removed, positions, true);
+        assertEquals(Arrays.asList("r1", "r2", "a", "b", "c"), list);
+    }
+
+    @Test
+    public void strokesWithoutPositionGoOnTop() {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        DrawingOrder.replace(list, Collections.emptyList(), Arrays.asList("x", "y"), null, false);
+        assertEquals(Arrays.asList("a", "b", "x", "y"), list);
+
+        DrawingOrder.replace(list, Arrays.asList("x", "y"), Arrays.asList("c", "z"), new int[]{0, -1}, false);
+        assertEquals(Arrays.asList("c", "a", "b", "z"), list);
+    }
+}
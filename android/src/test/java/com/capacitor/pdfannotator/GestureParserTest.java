@@ -0,0 +1,188 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks GestureParser against the split/parseFloat parser it replaced, which
+ * defines what is accepted: both must produce the same points, bit for bit.
+ */
+public class GestureParserTest {
+
+    /**
+     * The previous XfdfStorage.parseGestureString, returning interleaved x/y values.
+     */
+    private static float[] legacyParse(String gestureStr) {
+        List<Float> values = new ArrayList<>();
+        if (gestureStr == null || gestureStr.isEmpty()) {
+            return new float[0];
+        }
+        String[] pairs = gestureStr.split(";");
+        for (String pair : pairs) {
+            String[] coords = pair.split(",");
+            if (coords.length >= 2) {
+                try {
+                    float x = Float.parseFloat(coords[0].trim());
+                    float y = Float.parseFloat(coords[1].trim());
+                    values.add(x);
+                    values.add(y);
+                } catch (NumberFormatException e) {
+                    // Logged and skipped
+                }
+            }
+        }
+        float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private static void assertSameAsLegacy(GestureParser parser, String gesture) {
+        float[] expected = legacyParse(gesture);
+        int count = parser.parse(gesture.toCharArray(), 0, gesture.length());
+        assertParsed(gesture, expected, parser, count);
+    }
+
+    private static void assertParsed(String gesture, float[] expected, GestureParser parser, int count) {
+        assertEquals("Point count of \"" + gesture + "\"", expected.length / 2, count);
+        float[] coords = parser.coords();
+        for (int i = 0; i < expected.length; i++) {
+            // Compare bits so -0.0 and NaN count too
+            assertEquals("Value " + i + " of \"" + gesture + "\"",
+                    Float.floatToIntBits(expected[i]), Float.floatToIntBits(coords[i]));
+        }
+    }
+
+    @Test
+    public void edgeCasesMatchLegacyParser() {
+        String[] gestures = {
+                "",
+                "10.00,20.00",
+                "10.00,20.00;30.50,40.25;",
+                "1,2;3,4;5,6",
+                "-0,0;-0.0,+0.0",
+                "+1.5,-2.5",
+                " 1.5 , 2.5 ; \t3.5,\n4.5 ",
+                "1e3,2E-2;-1.5e+2,.5e1",
+                "1.5f,2.5d;0x1.8p1,-0x10P-2",
+                "NaN,1;Infinity,-Infinity",
+                ".5,5.;.,1;-,2;+,3",
+                "1.2.3,4;5,6",
+                "1 2,3;4,5",
+                "5;6",
+                "5,;6,,;,7;,,",
+                "1,2,3;4,5,6,7",
+                "1,,2;3,x",
+                ";;;1,2;;",
+                "abc,def;1,2",
+                "16777215,16777216;16777217,123456789012",
+                "0.1234567,0.12345678;0.0000000001,0.00000000001",
+                "3.4028235e38,3.5e38;1.4e-45,1e-50",
+                "00000000001.5,-00.25",
+                "1\u00a0,2;3,4\u2003", // Not whitespace to String.trim()
+        };
+        GestureParser parser = new GestureParser();
+        for (String gesture : gestures) {
+            assertSameAsLegacy(parser, gesture);
+        }
+    }
+
+    @Test
+    public void randomGesturesMatchLegacyParser() {
+        Random random = new Random(7);
+        GestureParser parser = new GestureParser();
+        StringBuilder gesture = new StringBuilder();
+        for (int n = 0; n < 20_000; n++) {
+            gesture.setLength(0);
+            int pairs = random.nextInt(12);
+            for (int p = 0; p < pairs; p++) {
+                if (p > 0) {
+                    gesture.append(random.nextInt(40) == 0 ? ";;" : ";");
+                }
+                int coordinates = random.nextInt(20) == 0 ? random.nextInt(4) : 2;
+                for (int c = 0; c < coordinates; c++) {
+                    if (c > 0) {
+                        gesture.append(',');
+                    }
+                    appendWhitespace(random, gesture);
+                    gesture.append(randomNumber(random));
+                    appendWhitespace(random, gesture);
+                }
+            }
+            if (random.nextInt(10) == 0) {
+                gesture.append(';');
+            }
+            assertSameAsLegacy(parser, gesture.toString());
+        }
+    }
+
+    @Test
+    public void textAppendedInChunksParsesLikeOneString() {
+        Random random = new Random(11);
+        GestureParser parser = new GestureParser();
+        for (int n = 0; n < 2_000; n++) {
+            StringBuilder gesture = new StringBuilder();
+            int pairs = 1 + random.nextInt(200);
+            for (int p = 0; p < pairs; p++) {
+                if (p > 0) {
+                    gesture.append(';');
+                }
+                gesture.append(randomNumber(random)).append(',').append(randomNumber(random));
+            }
+            char[] chars = gesture.toString().toCharArray();
+
+            // The XML parser hands text over in arbitrary chunks
+            parser.resetText();
+            int offset = 0;
+            while (offset < chars.length) {
+                int length = Math.min(chars.length - offset, 1 + random.nextInt(64));
+                parser.appendText(chars, offset, length);
+                offset += length;
+            }
+            assertParsed(gesture.toString(), legacyParse(gesture.toString()), parser, parser.parseText());
+        }
+    }
+
+    private static void appendWhitespace(Random random, StringBuilder out) {
+        if (random.nextInt(8) == 0) {
+            out.append(" \t\n\r".charAt(random.nextInt(4)));
+        }
+    }
+
+    private static String randomNumber(Random random) {
+        switch (random.nextInt(12)) {
+            case 0:
+                // Plain integer
+                return String.valueOf(random.nextInt(20_000) - 10_000);
+            case 1:
+                // Exponent
+                return String.format(Locale.US, "%.3e", (random.nextDouble() - 0.5) * 1e6);
+            case 2:
+                // Full float precision
+                return Float.toString((random.nextFloat() - 0.5f) * random.nextInt(100_000));
+            case 3:
+                // Many significant digits
+                return String.format(Locale.US, "%.9f", random.nextDouble() * 1000);
+            case 4:
+                // Explicit sign
+                return (random.nextBoolean() ? "+" : "-") + String.format(Locale.US, "%.2f", random.nextDouble() * 500);
+            case 5:
+                // Malformed
+                String[] malformed = {"", "-", "+", ".", "1.2.3", "1-2", "x", "1 2", "--1", "e5", "0x"};
+                return malformed[random.nextInt(malformed.length)];
+            case 6:
+                // Leading zeros and bare points
+                return random.nextBoolean() ? "000" + random.nextInt(100) + "." : "." + random.nextInt(1000);
+            default:
+                // What the writer emits
+                return String.format(Locale.US, "%.2f", (random.nextDouble() - 0.2) * 3000);
+        }
+    }
+}
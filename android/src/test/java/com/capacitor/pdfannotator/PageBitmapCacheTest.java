@@ -0,0 +1,91 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PageBitmapCacheTest {
+
+    // 1 MB of ARGB_8888 pixels
+    private static final int SMALL_SIDE = 512;
+    // 4 MB, larger than the whole cache
+    private static final int LARGE_SIDE = 1024;
+    private static final int CACHE_BYTES = 2 * 1024 * 1024;
+
+    private PageBitmapCache cache;
+
+    @Before
+    public void createCache() {
+        // The pool budget is too small to keep anything, so released bitmaps are recycled
+        cache = new PageBitmapCache(CACHE_BYTES, new BitmapPool(Bitmap.Config.ARGB_8888, 0));
+    }
+
+    private static Bitmap bitmap(int side) {
+        return Bitmap.createBitmap(side, side, Bitmap.Config.ARGB_8888);
+    }
+
+    @Test
+    public void bitmapWithinBudgetIsCached() {
+        Bitmap page = bitmap(SMALL_SIDE);
+        cache.put(0, 1f, page);
+
+        assertSame(page, cache.get(0, 1f));
+        assertFalse(page.isRecycled());
+    }
+
+    @Test
+    public void oversizedBitmapStaysUsableWhileDisplayed() {
+        Bitmap page = bitmap(LARGE_SIDE);
+        cache.markDisplayed(page);
+        cache.put(0, 1f, page);
+
+        assertNull(cache.get(0, 1f));
+        assertFalse("Displayed bitmap was released", page.isRecycled());
+
+        cache.markHidden(page);
+        assertTrue("Hidden oversized bitmap was not released", page.isRecycled());
+    }
+
+    @Test
+    public void oversizedBitmapStaysUsableWhilePinned() {
+        Bitmap page = bitmap(LARGE_SIDE);
+        cache.pin(page);
+        cache.put(0, 1f, page);
+
+        assertNull(cache.get(0, 1f));
+        assertFalse("Pinned bitmap was released", page.isRecycled());
+
+        cache.unpin(page);
+        assertTrue("Unpinned oversized bitmap was not released", page.isRecycled());
+    }
+
+    @Test
+    public void oversizedBitmapNobodyUsesIsReleasedRightAway() {
+        Bitmap page = bitmap(LARGE_SIDE);
+        cache.put(0, 1f, page);
+
+        assertNull(cache.get(0, 1f));
+        assertTrue(page.isRecycled());
+    }
+
+    @Test
+    public void oversizedBitmapLeavesCachedPagesAlone() {
+        Bitmap small = bitmap(SMALL_SIDE);
+        cache.put(0, 1f, small);
+        cache.put(1, 1f, bitmap(LARGE_SIDE));
+
+        assertSame(small, cache.get(0, 1f));
+        assertFalse(small.isRecycled());
+    }
+}
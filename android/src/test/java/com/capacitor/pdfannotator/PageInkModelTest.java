@@ -0,0 +1,105 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Drawing order of a page's loaded strokes through erasing, undo and redo.
+ */
+public class PageInkModelTest {
+
+    private PageInkModel model;
+    private InkCanvasView.InkStroke a;
+    private InkCanvasView.InkStroke b;
+    private InkCanvasView.InkStroke c;
+    private InkCanvasView.InkStroke d;
+
+    private static InkCanvasView.InkStroke stroke(int color) {
+        InkCanvasView.InkStroke stroke = new InkCanvasView.InkStroke(0, 0xFF000000 | color, 4f);
+        stroke.addPoint(0f, 0f);
+        stroke.addPoint(100f, 100f);
+        return stroke;
+    }
+
+    @Before
+    public void loadStrokes() {
+        model = new PageInkModel(0);
+        a = stroke(1);
+        b = stroke(2);
+        c = stroke(3);
+        d = stroke(4);
+        model.loadStrokes(Arrays.asList(a, b, c, d));
+    }
+
+    private void assertOrder(InkCanvasView.InkStroke... expected) {
+        List<InkCanvasView.InkStroke> actual = model.getLegacyStrokes();
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Stroke " + i, expected[i], actual.get(i));
+        }
+    }
+
+    @Test
+    public void cutUndoRedoKeepsDrawingOrder() {
+        // One precision erase gesture: b is cut in two, one of the pieces is cut again
+        InkCanvasView.InkStroke b1 = stroke(21);
+        InkCanvasView.InkStroke b2 = stroke(22);
+        model.replaceLegacyStroke(b, Arrays.asList(b1, b2));
+        InkCanvasView.InkStroke b2a = stroke(23);
+        model.replaceLegacyStroke(b2, Collections.singletonList(b2a));
+        model.recordErase(Collections.emptyList(), Collections.emptyMap(),
+                Collections.singletonList(b), Collections.emptyMap(), Arrays.asList(b1, b2a));
+        assertOrder(a, b1, b2a, c, d);
+
+        assertNotNull(model.undo());
+        assertOrder(a, b, c, d);
+
+        assertNotNull(model.redo());
+        assertOrder(a, b1, b2a, c, d);
+
+        assertNotNull(model.undo());
+        assertOrder(a, b, c, d);
+    }
+
+    @Test
+    public void successiveErasesUndoInPlace() {
+        // Whole-stroke erase of c, then a cut of a
+        model.removeLegacyStrokes(Collections.singletonList(c));
+        model.recordErase(Collections.emptyList(), Collections.emptyMap(),
+                Collections.singletonList(c), Collections.emptyMap(), Collections.emptyList());
+        InkCanvasView.InkStroke a1 = stroke(11);
+        InkCanvasView.InkStroke a2 = stroke(12);
+        model.replaceLegacyStroke(a, Arrays.asList(a1, a2));
+        model.recordErase(Collections.emptyList(), Collections.emptyMap(),
+                Collections.singletonList(a), Collections.emptyMap(), Arrays.asList(a1, a2));
+        assertOrder(a1, a2, b, d);
+
+        model.undo();
+        assertOrder(a, b, d);
+        model.undo();
+        assertOrder(a, b, c, d);
+
+        model.redo();
+        assertOrder(a, b, d);
+        model.redo();
+        assertOrder(a1, a2, b, d);
+    }
+
+    @Test
+    public void undoingClearRestoresDrawingOrder() {
+        model.clear();
+        assertOrder();
+
+        model.undo();
+        assertOrder(a, b, c, d);
+        model.redo();
+        assertOrder();
+    }
+}
@@ -0,0 +1,220 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RendererPoolTest {
+
+    /**
+     * Stand-in for a PdfRenderer that detects concurrent use and use after close.
+     */
+    private static final class FakeRenderer implements AutoCloseable {
+        private final AtomicInteger users = new AtomicInteger();
+        volatile boolean closed = false;
+
+        void render() throws InterruptedException {
+            assertFalse("Renderer used after close", closed);
+            assertEquals("Renderer used by two threads at once", 1, users.incrementAndGet());
+            Thread.sleep(1);
+            users.decrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class FakeOpener implements RendererPool.Opener<FakeRenderer> {
+        final List<FakeRenderer> opened = Collections.synchronizedList(new ArrayList<>());
+        volatile int failuresLeft = 0;
+
+        @Override
+        public FakeRenderer open() throws IOException {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IOException("Simulated open failure");
+            }
+            FakeRenderer renderer = new FakeRenderer();
+            opened.add(renderer);
+            return renderer;
+        }
+    }
+
+    @Test
+    public void releasedRendererIsReused() throws Exception {
+        FakeOpener opener = new FakeOpener();
+        RendererPool<FakeRenderer> pool = new RendererPool<>(opener, 2);
+
+        FakeRenderer first = pool.acquire();
+        pool.release(first);
+        FakeRenderer second = pool.acquire();
+
+        assertSame(first, second);
+        assertEquals(1, opener.opened.size());
+    }
+
+    @Test
+    public void opensUpToMaxSizeThenWaitsForRelease() throws Exception {
+        FakeOpener opener = new FakeOpener();
+        RendererPool<FakeRenderer> pool = new RendererPool<>(opener, 2);
+
+        FakeRenderer first = pool.acquire();
+        FakeRenderer second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getLeasedCount());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<FakeRenderer> waiting = executor.submit(pool::acquire);
+            Thread.sleep(50);
+            assertFalse("Third lease should wait", waiting.isDone());
+
+            pool.release(second);
+            assertSame(second, waiting.get(1, TimeUnit.SECONDS));
+            assertEquals(2, opener.opened.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void releasingUnknownRendererFails() {
+        RendererPool<FakeRenderer> pool = new RendererPool<>(new FakeOpener(), 1);
+        pool.release(new FakeRenderer());
+    }
+
+    @Test
+    public void releasingTwiceFails() throws Exception {
+        RendererPool<FakeRenderer> pool = new RendererPool<>(new FakeOpener(), 1);
+        FakeRenderer renderer = pool.acquire();
+        pool.release(renderer);
+        try {
+            pool.release(renderer);
+            fail("Second release should fail");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    @Test
+    public void failedOpenDoesNotUseASlot() throws Exception {
+        FakeOpener opener = new FakeOpener();
+        opener.failuresLeft = 1;
+        RendererPool<FakeRenderer> pool = new RendererPool<>(opener, 1);
+
+        try {
+            pool.acquire();
+            fail("Open failure should propagate");
+        } catch (IOException expected) {
+            // Expected
+        }
+
+        FakeRenderer renderer = pool.acquire();
+        assertEquals(1, pool.getLeasedCount());
+        pool.release(renderer);
+    }
+
+    @Test
+    public void closeClosesIdleNowAndLeasedOnRelease() throws Exception {
+        RendererPool<FakeRenderer> pool = new RendererPool<>(new FakeOpener(), 2);
+        FakeRenderer idle = pool.acquire();
+        FakeRenderer leased = pool.acquire();
+        pool.release(idle);
+
+        pool.close();
+        assertTrue(idle.closed);
+        assertFalse(leased.closed);
+
+        pool.release(leased);
+        assertTrue(leased.closed);
+        assertEquals(0, pool.getOpenCount());
+
+        try {
+            pool.acquire();
+            fail("Acquire after close should fail");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void closeWakesWaitingThreads() throws Exception {
+        RendererPool<FakeRenderer> pool = new RendererPool<>(new FakeOpener(), 1);
+        FakeRenderer leased = pool.acquire();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<FakeRenderer> waiting = executor.submit(pool::acquire);
+            Thread.sleep(50);
+            pool.close();
+            try {
+                waiting.get(1, TimeUnit.SECONDS);
+                fail("Waiting acquire should fail once the pool is closed");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            executor.shutdownNow();
+            pool.release(leased);
+        }
+    }
+
+    @Test
+    public void concurrentLeasesNeverShareARenderer() throws Exception {
+        int poolSize = 3;
+        int threads = 8;
+        int leasesPerThread = 50;
+        FakeOpener opener = new FakeOpener();
+        RendererPool<FakeRenderer> pool = new RendererPool<>(opener, poolSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < leasesPerThread; i++) {
+                    FakeRenderer renderer = pool.acquire();
+                    try {
+                        renderer.render();
+                    } finally {
+                        pool.release(renderer);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(opener.opened.size() <= poolSize);
+        assertEquals(0, pool.getLeasedCount());
+
+        pool.close();
+        for (FakeRenderer renderer : opener.opened) {
+            assertTrue(renderer.closed);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class StrokeGridTest {
+
+    private static final float CELL_SIZE = 100f;
+
+    @Test
+    public void queryReturnsItemsIntersectingTheRectangle() {
+        StrokeGrid<String> grid = new StrokeGrid<>(CELL_SIZE);
+        grid.insert("a", 10, 10, 20, 20);
+        grid.insert("b", 150, 150, 160, 160);
+        grid.insert("c", -50, -50, -40, -40);
+
+        List<String> result = new ArrayList<>();
+        grid.query(0, 0, 30, 30, result);
+        assertEquals(List.of("a"), result);
+
+        result.clear();
+        grid.query(-60, -60, 155, 155, result);
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(result));
+    }
+
+    @Test
+    public void itemSpanningSeveralCellsIsReportedOnce() {
+        StrokeGrid<String> grid = new StrokeGrid<>(CELL_SIZE);
+        grid.insert("long", 0, 0, 950, 40);
+
+        List<String> result = new ArrayList<>();
+        grid.query(0, 0, 1000, 1000, result);
+        assertEquals(List.of("long"), result);
+
+        // A second query reports it again
+        result.clear();
+        grid.query(500, 0, 600, 10, result);
+        assertEquals(List.of("long"), result);
+    }
+
+    @Test
+    public void cellNeighboursOutsideTheRectangleAreFiltered() {
+        StrokeGrid<String> grid = new StrokeGrid<>(CELL_SIZE);
+        grid.insert("near", 60, 60, 90, 90);
+
+        // Same cell, but the bounds don't overlap
+        List<String> result = new ArrayList<>();
+        grid.query(0, 0, 50, 50, result);
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void removedAndReinsertedItemsAreTracked() {
+        StrokeGrid<String> grid = new StrokeGrid<>(CELL_SIZE);
+        grid.insert("a", 0, 0, 250, 250);
+        assertTrue(grid.contains("a"));
+        assertTrue(grid.remove("a"));
+        assertFalse(grid.remove("a"));
+        assertEquals(0, grid.size());
+
+        List<String> result = new ArrayList<>();
+        grid.query(0, 0, 300, 300, result);
+        assertTrue(result.isEmpty());
+
+        // Inserting again replaces the old bounds
+        grid.insert("a", 0, 0, 10, 10);
+        grid.insert("a", 500, 500, 510, 510);
+        assertEquals(1, grid.size());
+        grid.query(0, 0, 20, 20, result);
+        assertTrue(result.isEmpty());
+        grid.query(490, 490, 520, 520, result);
+        assertEquals(List.of("a"), result);
+    }
+
+    @Test
+    public void matchesBruteForceOnRandomStrokes() {
+        Random random = new Random(42);
+        StrokeGrid<Object> grid = new StrokeGrid<>(CELL_SIZE);
+        // Items are compared by identity, like strokes
+        List<Object> items = new ArrayList<>();
+        List<float[]> bounds = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            float left = random.nextFloat() * 2000;
+            float top = random.nextFloat() * 3000;
+            float[] box = {left, top, left + random.nextFloat() * 300, top + random.nextFloat() * 300};
+            items.add(new Object());
+            bounds.add(box);
+            grid.insert(items.get(i), box[0], box[1], box[2], box[3]);
+        }
+        // Erase a third of them, as the eraser would
+        for (int i = 0; i < bounds.size(); i += 3) {
+            grid.remove(items.get(i));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            float x = random.nextFloat() * 2000;
+            float y = random.nextFloat() * 3000;
+            float left = x - 50;
+            float top = y - 50;
+            float right = x + 50;
+            float bottom = y + 50;
+
+            List<Object> result = new ArrayList<>();
+            grid.query(left, top, right, bottom, result);
+
+            Set<Object> expected = new HashSet<>();
+            for (int i = 0; i < bounds.size(); i++) {
+                float[] box = bounds.get(i);
+                if (i % 3 != 0 && box[0] <= right && box[2] >= left && box[1] <= bottom && box[3] >= top) {
+                    expected.add(items.get(i));
+                }
+            }
+            assertEquals(expected.size(), result.size());
+            assertEquals(expected, new HashSet<>(result));
+        }
+    }
+}
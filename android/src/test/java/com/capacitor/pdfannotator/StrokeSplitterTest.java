@@ -0,0 +1,80 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class StrokeSplitterTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    // Horizontal line from (0, 0) to (100, 0) through points every 10 px
+    private static float[] line() {
+        float[] coords = new float[22];
+        for (int i = 0; i <= 10; i++) {
+            coords[2 * i] = i * 10f;
+        }
+        return coords;
+    }
+
+    @Test
+    public void untouchedStrokeIsKeptWhole() {
+        assertNull(StrokeSplitter.keptRanges(line(), 11, new float[]{50, 50}, 1, 10));
+    }
+
+    @Test
+    public void circleInTheMiddleSplitsAtItsEdges() {
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, new float[]{50, 0}, 1, 15);
+        // The circle covers x 35..65, i.e. points 3.5 to 6.5
+        assertArrayEquals(new float[]{0f, 3.5f, 6.5f, 10f}, ranges, EPSILON);
+    }
+
+    @Test
+    public void circleAtAnEndTrimsIt() {
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, new float[]{100, 0}, 1, 25);
+        assertArrayEquals(new float[]{0f, 7.5f}, ranges, EPSILON);
+    }
+
+    @Test
+    public void circleCrossingAtAnOffsetCutsTheChord() {
+        // Center 6 px off the line with radius 10 meets it 8 px either side of x = 50
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, new float[]{50, 6}, 1, 10);
+        assertArrayEquals(new float[]{0f, 4.2f, 5.8f, 10f}, ranges, EPSILON);
+    }
+
+    @Test
+    public void endLeftOnTheEraserEdgeIsNotCutAgain() {
+        // The left piece of a cut at x = 50 with radius 15 ends on the circle at x = 35
+        float[] piece = {0, 0, 10, 0, 20, 0, 30, 0, 35, 0};
+        assertNull(StrokeSplitter.keptRanges(piece, 5, new float[]{50, 0}, 1, 15));
+    }
+
+    @Test
+    public void overlappingCirclesMergeIntoOneCut() {
+        float[] circles = {30, 0, 40, 0, 50, 0};
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, circles, 3, 8);
+        assertArrayEquals(new float[]{0f, 2.2f, 5.8f, 10f}, ranges, EPSILON);
+    }
+
+    @Test
+    public void separateCirclesLeaveSeveralPieces() {
+        float[] circles = {20, 0, 80, 0};
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, circles, 2, 5);
+        assertArrayEquals(new float[]{0f, 1.5f, 2.5f, 7.5f, 8.5f, 10f}, ranges, EPSILON);
+    }
+
+    @Test
+    public void coveredStrokeIsErasedCompletely() {
+        float[] ranges = StrokeSplitter.keptRanges(line(), 11, new float[]{50, 0}, 1, 80);
+        assertEquals(0, ranges.length);
+    }
+
+    @Test
+    public void singlePointStrokeIsErasedOrKept() {
+        float[] dot = {10, 10};
+        assertEquals(0, StrokeSplitter.keptRanges(dot, 1, new float[]{12, 12}, 1, 5).length);
+        assertNull(StrokeSplitter.keptRanges(dot, 1, new float[]{30, 30}, 1, 5));
+    }
+}
@@ -0,0 +1,189 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Parses a synthetic 50 MB XFDF file through the streaming path, checking that
+ * every stroke comes out with its values and that strokes are emitted while the
+ * file is still being read instead of after buffering the whole document.
+ */
+public class XfdfStreamingParseTest {
+
+    private static final long TARGET_BYTES = 50L * 1024 * 1024;
+    private static final int POINTS_PER_STROKE = 100;
+    private static final int PAGES = 40;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private File file;
+    private int strokesWritten;
+    // File offset just past each ink element
+    private long[] strokeEnds = new long[1024];
+
+    @Before
+    public void writeLargeXfdf() throws IOException {
+        file = File.createTempFile("large", ".xfdf");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            // The document is ASCII, so string lengths are byte counts
+            long offset = write(out, "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                    + "<xfdf xmlns=\"http://ns.adobe.com/xfdf/\" xml:space=\"preserve\"><annots>");
+            StringBuilder gesture = new StringBuilder(POINTS_PER_STROKE * 16);
+            while (offset < TARGET_BYTES) {
+                int i = strokesWritten++;
+                gesture.setLength(0);
+                for (int j = 0; j < POINTS_PER_STROKE; j++) {
+                    if (j > 0) {
+                        gesture.append(';');
+                    }
+                    gesture.append(String.format(Locale.US, "%.2f,%.2f", x(i, j), y(i, j)));
+                }
+                offset += write(out, String.format(Locale.US,
+                        "<ink color=\"#%06X\" creationdate=\"D:20260101000000\" name=\"ink-%d\" opacity=\"%s\""
+                                + " page=\"%d\" rect=\"0,0,0,0\" subject=\"%s\" width=\"%.1f\">"
+                                + "<inklist><gesture>%s</gesture></inklist><popup/></ink>",
+                        color(i), i, i % 4 == 2 ? "0.5" : "1.0", i % PAGES, subject(i), width(i), gesture));
+                if (i == strokeEnds.length) {
+                    strokeEnds = Arrays.copyOf(strokeEnds, i * 2);
+                }
+                strokeEnds[i] = offset;
+            }
+            write(out, "</annots></xfdf>\n");
+        }
+    }
+
+    private static int write(Writer out, String text) throws IOException {
+        out.write(text);
+        return text.length();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    // Values with at most two decimals that are exact in binary, so they survive formatting
+    private static float x(int stroke, int point) {
+        return (stroke * 31 + point * 7) % 2000 + 0.25f;
+    }
+
+    private static float y(int stroke, int point) {
+        return -((stroke * 17 + point * 3) % 3000) - 0.5f;
+    }
+
+    private static int color(int stroke) {
+        return (stroke * 0x9E3779B1) & 0xFFFFFF;
+    }
+
+    private static float width(int stroke) {
+        return 1 + stroke % 30;
+    }
+
+    private static String subject(int stroke) {
+        switch (stroke % 4) {
+            case 1:
+                return "Marker";
+            case 2:
+                return "Highlighter";
+            case 3:
+                return "Dashed Line";
+            default:
+                return "Pressure Pen";
+        }
+    }
+
+    /**
+     * Counts the bytes the parser has pulled from the file.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long bytesRead;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+
+    @Test
+    public void parsesLargeFileStrokeByStroke() throws Exception {
+        assertTrue(file.length() >= TARGET_BYTES);
+
+        int[] parsed = new int[1];
+        int[] strokesPerPage = new int[PAGES];
+        long[] bytesReadAtFirstStroke = {-1};
+        long[] maxBytesAhead = {0};
+
+        try (CountingInputStream counting = new CountingInputStream(new FileInputStream(file));
+             InputStream in = new BufferedInputStream(counting, READ_BUFFER_SIZE)) {
+            XmlPullParser parser = new KXmlParser();
+            parser.setInput(in, null);
+
+            new XfdfStorage(null).parseXfdf(parser, stroke -> {
+                int i = parsed[0]++;
+                if (bytesReadAtFirstStroke[0] < 0) {
+                    bytesReadAtFirstStroke[0] = counting.bytesRead;
+                }
+                // How far reading has run ahead of the end of this stroke
+                maxBytesAhead[0] = Math.max(maxBytesAhead[0], counting.bytesRead - strokeEnds[i]);
+
+                assertEquals(i % PAGES, stroke.pageIndex);
+                assertEquals(0xFF000000 | color(i), stroke.color);
+                assertEquals(width(i), stroke.strokeWidth, 0f);
+                assertEquals(i % 4, stroke.brushType);
+                assertEquals(POINTS_PER_STROKE, stroke.getPointCount());
+                for (int j = 0; j < POINTS_PER_STROKE; j++) {
+                    assertEquals(x(i, j), stroke.getX(j), 0f);
+                    assertEquals(y(i, j), stroke.getY(j), 0f);
+                }
+                strokesPerPage[stroke.pageIndex]++;
+            });
+        }
+
+        assertEquals(strokesWritten, parsed[0]);
+        for (int page = 0; page < PAGES; page++) {
+            assertEquals(strokesWritten / PAGES + (page < strokesWritten % PAGES ? 1 : 0), strokesPerPage[page]);
+        }
+        // Strokes are emitted as the file is read, never after reading far ahead of them
+        assertTrue("Read " + bytesReadAtFirstStroke[0] + " bytes before the first stroke",
+                bytesReadAtFirstStroke[0] <= 4 * READ_BUFFER_SIZE);
+        assertTrue("Read " + maxBytesAhead[0] + " bytes ahead of the parsed strokes",
+                maxBytesAhead[0] <= 4 * READ_BUFFER_SIZE);
+    }
+}
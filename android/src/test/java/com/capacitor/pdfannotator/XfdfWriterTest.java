@@ -0,0 +1,100 @@
+package com.capacitor.pdfannotator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class XfdfWriterTest {
+
+    /**
+     * Strokes of baseline-strokes.xfdf, which was written by the DOM and Transformer
+     * based XfdfStorage.generateXfdf this writer replaced, running on the JDK.
+     */
+    private static Map<Integer, List<InkCanvasView.InkStroke>> fixtureStrokes() {
+        InkCanvasView.InkStroke pen = new InkCanvasView.InkStroke(0, 0xFF1A2B3C, 3.5f, 0);
+        pen.addPoints(new float[]{10f, 20f, 10.125f, 20.875f, 33.333f, 41.005f, -4.5f, 0.004f}, 0, 4);
+        InkCanvasView.InkStroke highlighter = new InkCanvasView.InkStroke(0, 0x80FFEE00, 24f, 2);
+        highlighter.addPoints(new float[]{100f, 200f, 612.5f, 200.25f}, 0, 2);
+
+        InkCanvasView.InkStroke marker = new InkCanvasView.InkStroke(3, 0xFF0000FF, 8f, 1);
+        marker.addPoint(1234.567f, 89.01f);
+        InkCanvasView.InkStroke dashed = new InkCanvasView.InkStroke(3, 0xFF000000, 2f, 3);
+        for (int i = 0; i < 5; i++) {
+            dashed.addPoint(i * 7.75f, 300f - i * 0.5f);
+        }
+        InkCanvasView.InkStroke empty = new InkCanvasView.InkStroke(3, 0xFFFFFFFF, 1f, 0);
+
+        Map<Integer, List<InkCanvasView.InkStroke>> strokesByPage = new LinkedHashMap<>();
+        strokesByPage.put(0, Arrays.asList(pen, highlighter));
+        strokesByPage.put(3, Arrays.asList(marker, dashed, empty));
+        return strokesByPage;
+    }
+
+    // Creation dates and annotation IDs differ on every save
+    private static String normalize(String xfdf) {
+        return xfdf.replaceAll("creationdate=\"D:\\d{14}\"", "creationdate=\"D:0\"")
+                .replaceAll("name=\"ink-[0-9a-f-]{36}\"", "name=\"ink-0\"");
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = XfdfWriterTest.class.getClassLoader().getResourceAsStream(name)) {
+            assertNotNull("Missing test resource " + name, in);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+
+    @Test
+    public void outputMatchesBaselineTransformerByteForByte() throws IOException {
+        StringWriter out = new StringWriter();
+        new XfdfStorage(null).writeXfdf(out, fixtureStrokes());
+
+        assertEquals(normalize(readResource("xfdf/baseline-strokes.xfdf")), normalize(out.toString()));
+    }
+
+    @Test
+    public void documentWithoutStrokesSelfClosesAnnots() throws IOException {
+        StringWriter out = new StringWriter();
+        new XfdfStorage(null).writeXfdf(out, Collections.emptyMap());
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                + "<xfdf xmlns=\"http://ns.adobe.com/xfdf/\" xml:space=\"preserve\">"
+                + "<pdf-info xmlns=\"http://ns.adobe.com/xfdf-transition/\"><VersionID>1</VersionID>"
+                + "<AppName>capacitor-pdf-annotator</AppName><AppVersion>1.4.0</AppVersion></pdf-info>"
+                + "<annots/></xfdf>\n", out.toString());
+    }
+
+    @Test
+    public void escapesMarkupInTextAndAttributes() throws IOException {
+        StringWriter out = new StringWriter();
+        XfdfWriter xml = new XfdfWriter(out);
+        xml.startDocument();
+        xml.startTag("a");
+        xml.attribute("title", "<\"R&D\">");
+        xml.text("x < y & \"z\" > w");
+        xml.startTag("b");
+        xml.text("");
+        xml.endTag();
+        xml.endDocument();
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                + "<a title=\"&lt;&quot;R&amp;D&quot;&gt;\">x &lt; y &amp; \"z\" &gt; w<b/></a>\n", out.toString());
+    }
+}
@@ -151,6 +151,20 @@ export interface OpenPdfOptions {
    * @example ['#000000', '#F44336', '#2196F3', '#4CAF50', '#FFEB3B', '#E91E63', '#9E9E9E', '#00BCD4', '#FFFFFF']
    */
   colorPalette?: string[];
+
+  /**
+   * Memory budget in MB for rendered page bitmaps kept in memory (Android only)
+   * Least recently viewed pages are dropped first when the budget is exceeded
+   * @default A quarter of the app's memory class
+   */
+  pageCacheSizeMb?: number;
+
+  /**
+   * Number of pages on each side of the current page to render ahead of time (Android only)
+   * Reduced automatically when the page cache is too small to hold them
+   * @default 2
+   */
+  prefetchDistance?: number;
 }
 
 export interface OpenPdfResult {